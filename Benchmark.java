@@ -0,0 +1,250 @@
+import com.sun.management.ThreadMXBean;
+import constructs.Expression;
+import constructs.Frame;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import nodes.Node;
+import nodes.NodeCompiler;
+import vm.Function;
+import vm.VM;
+import vm.VMCompiler;
+
+public class Benchmark {
+    private static final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final Lexer lexer = new Lexer();
+    private final Parser parser = new Parser();
+    private final Resolver resolver = new Resolver();
+    private final TypeInference typer = new TypeInference();
+    private final Optimizer optimizer = new Optimizer();
+    private final Fusion fusion = new Fusion();
+    private final Interpreter interpreter;
+    private final NodeCompiler compiler = new NodeCompiler();
+    private final VMCompiler vmCompiler = new VMCompiler();
+    private final VM vm = new VM();
+    private final Frame env = new Frame(null, new Expression[16]);
+    private final boolean compiled, bytecode, dynamic;
+
+    // java Benchmark [--compiled | --vm | --no-jit] [--dynamic]
+    public static void main(String[] args) throws Exception {
+        boolean compiled = false, bytecode = false, jit = true, dynamic = false;
+        for (String arg : args) {
+            compiled |= arg.contentEquals("--compiled");
+            bytecode |= arg.contentEquals("--vm");
+            jit &= !arg.contentEquals("--no-jit");
+            dynamic |= arg.contentEquals("--dynamic");
+        }
+        Benchmark bench = new Benchmark(compiled, bytecode, jit, dynamic);
+        // a large global environment, as found in generated scripts
+        for (int i = 0; i < 1000; i++)
+            bench.load("let global" + i + " = " + i + " ;;");
+        BlockReader blocks = new BlockReader(Files.newBufferedReader(Paths.get("test/test.ml")));
+        for (CharSequence block = blocks.next(); block != null; block = blocks.next())
+            bench.load(block);
+        bench.load("let rec fib n = if (n < 2) then n else ((fib (n - 1)) + (fib (n - 2))) ;;");
+        bench.load("let rec range n acc = if (n == 0) then acc else (range (n - 1) (List.cons n acc)) ;;");
+        bench.load("let big = (range 1000 []) ;;");
+        bench.load("let rec sumsq n acc = if (n == 0) then acc else (sumsq (n - 1) (acc + (n * n))) ;;");
+        bench.load("let triple = function x -> (x * 3) ;;");
+        bench.load("let even = function x -> ((x % 2) == 0) ;;");
+        bench.load("let add = function x acc -> (acc + x) ;;");
+        bench.load("let rec sumtriple n acc = if (n == 0) then acc else (sumtriple (n - 1) (add (triple n) acc)) ;;");
+
+        System.out.printf("%-60s %5s %9s %10s %11s%n", "workload", "calls", "ns/op", "bytes/op", "bytes/call");
+        bench.measure("(fact 10) ;;", 10);
+        bench.measure("(fact 100) ;;", 100);
+        bench.measure("(search 2 list1 0) ;;", 6);
+        bench.measure("(search 3 (List.append list1 list2) 0) ;;", 7);
+        bench.measure("(search 1000 big 0) ;;", 1000);
+        bench.measure("(fib 15) ;;", 1973);
+        bench.measure("(sumsq 100 0) ;;", 101);
+        // calls of small helpers, which are inlined
+        bench.measure("(sumtriple 100 0) ;;", 301);
+        bench.measure("(List.map (function x -> (add (triple x) 1)) big) ;;", 3000);
+        bench.measure("(List.fold add 0 (List.filter even (List.map triple big))) ;;", 2500);
+        bench.measure("(List.exists (function x -> (x == 30)) (List.map triple big)) ;;", 2000);
+        // as generated from templates, with constant parts the optimizer removes
+        bench.measure("(List.map (function x -> if true then ((x * 1) + (2 * 3)) else 0) big) ;;", 1000);
+        bench.measureJava("fib 15 in plain Java", 1973);
+
+        bench.load("let rec double n l = if (n == 0) then l else (double (n - 1) (List.append l l)) ;;");
+        System.out.printf("%n%-60s %9s %9s %12s%n", "workload", "ms", "gc ms", "heap bytes");
+        bench.footprint("(double 10 big) ;;");
+        bench.footprint("(List.rev (double 10 big)) ;;");
+
+        System.out.printf("%n%-60s %9s %9s%n", "workload", "MB", "MB/s");
+        String source = Files.readString(Paths.get("test/test.ml"));
+        bench.lex("lexing copies of test/test.ml", source, 4_000_000);
+        bench.parseBlocks("lexing and parsing copies of test/test.ml", source, 4_000_000);
+    }
+
+    private Benchmark(boolean compiled, boolean bytecode, boolean jit, boolean dynamic) {
+        this.compiled = compiled;
+        this.bytecode = bytecode;
+        this.dynamic = dynamic;
+        this.interpreter = new Interpreter(jit);
+    }
+
+    private Expression load(CharSequence block) throws Exception {
+        Expression e = parse(block);
+        return run(e, precompile(e));
+    }
+
+    private Expression parse(CharSequence block) throws Exception {
+        lexer.setInput(block);
+        lexer.tokenize();
+        parser.setInput(lexer.getResult());
+        parser.parse();
+        resolver.resolve(parser.getResult());
+        if (!dynamic)
+            typer.infer(parser.getResult());
+        return fusion.fuse(optimizer.optimize(parser.getResult(), !dynamic));
+    }
+
+    // evaluates an already parsed expression repeatedly and reports time and allocation per evaluation
+    private void measure(String block, int calls) throws Exception {
+        Expression e = parse(block);
+        Expression code = precompile(e);
+
+        // warm up for at least two seconds, so that the JIT has compiled what the workload runs
+        int ops = Math.max(100, 1_000_000 / calls);
+        long warm = System.nanoTime() + 2_000_000_000L;
+        for (int i = 0; i < ops || System.nanoTime() < warm; i++)
+            run(e, code);
+
+        long bytes = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ops; i++)
+            run(e, code);
+        long time = System.nanoTime() - start;
+        bytes = threads.getCurrentThreadAllocatedBytes() - bytes;
+
+        System.out.printf("%-60s %5d %9d %10d %11d%n", block, calls, time / ops, bytes / ops, bytes / ops / calls);
+    }
+
+    // evaluates a block once and reports the time spent, the part of it spent collecting garbage and the heap
+    // still taken by its value afterwards
+    private void footprint(String block) throws Exception {
+        Expression e = parse(block);
+        Expression code = precompile(e);
+        System.gc();
+        long heap = usedHeap(), gc = gcTime();
+        long start = System.nanoTime();
+        Expression value = run(e, code);
+        long time = System.nanoTime() - start;
+        gc = gcTime() - gc;
+        System.gc();
+        heap = usedHeap() - heap;
+        Reference.reachabilityFence(value);
+
+        System.out.printf("%-60s %9d %9d %12d%n", block, time / 1_000_000, gc, heap);
+    }
+
+    // tokenizes a program of about 'size' characters made of copies of 'source' and reports the throughput
+    private void lex(String name, String source, int size) throws Exception {
+        String program = copies(source, size);
+        throughput(name, program.length(), () -> {
+            lexer.setInput(program);
+            lexer.tokenize();
+        });
+    }
+
+    // lexes and parses the same program block by block, as Main does
+    private void parseBlocks(String name, String source, int size) throws Exception {
+        String program = copies(source, size);
+        List<String> blocks = new ArrayList<>();
+        BlockReader reader = new BlockReader(new StringReader(program));
+        for (String block = reader.next(); block != null; block = reader.next())
+            blocks.add(block);
+        throughput(name, program.length(), () -> {
+            for (String block : blocks) {
+                lexer.setInput(block);
+                lexer.tokenize();
+                parser.setInput(lexer.getResult());
+                parser.parse();
+            }
+        });
+    }
+
+    private static String copies(String source, int size) {
+        return (source + "\n").repeat(Math.max(1, size / (source.length() + 1)));
+    }
+
+    private interface Work {
+        void run() throws Exception;
+    }
+
+    private static void throughput(String name, int characters, Work work) throws Exception {
+        for (int i = 0; i < 3; i++)
+            work.run();
+
+        int reps = 5;
+        long start = System.nanoTime();
+        for (int i = 0; i < reps; i++)
+            work.run();
+        long time = System.nanoTime() - start;
+
+        double mb = characters / 1e6;
+        System.out.printf("%-60s %9.1f %9.1f%n", name, mb, mb * reps / (time / 1e9));
+    }
+
+    private static long usedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+            time += collector.getCollectionTime();
+        return time;
+    }
+
+    // the same workload written directly in Java, as the bound for what compiling can reach
+    private void measureJava(String name, int calls) {
+        int ops = Math.max(100, 1_000_000 / calls), sink = 0;
+        for (int i = 0; i < ops / 5; i++)
+            sink += fib(15);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ops; i++)
+            sink += fib(15);
+        long time = System.nanoTime() - start;
+
+        System.out.printf("%-60s %5d %9d %10d %11d%n", name, calls, time / ops, 0, 0);
+        if (sink == 0)
+            System.out.println();
+    }
+
+    private static int fib(int n) {
+        return n < 2 ? n : fib(n - 1) + fib(n - 2);
+    }
+
+    // translates a block for the selected engine, or returns null when the tree interpreter runs it as is
+    private Expression precompile(Expression e) throws Exception {
+        if (compiled)
+            return compiler.compile(e);
+        if (bytecode)
+            return vmCompiler.compile(e);
+        return null;
+    }
+
+    private Expression run(Expression e, Expression code) throws Exception {
+        switch (code) {
+            case Node node -> {
+                return node.execute(env);
+            }
+            case Function function -> {
+                return vm.execute(function, env);
+            }
+            case null, default -> {
+                return interpreter.eval(e, env);
+            }
+        }
+    }
+}
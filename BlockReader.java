@@ -0,0 +1,66 @@
+import java.io.IOException;
+import java.io.Reader;
+
+// Cuts a program read from a stream into blocks, each ending with the ';;' that closes it. A block is returned as
+// soon as its ';;' has been read, without waiting for the rest of the input, and only the block being read is
+// kept in memory. The line and column each block starts at are kept for the lexer.
+public class BlockReader {
+    private final Reader input;
+    private final char[] buffer = new char[8192];
+    // the characters read from the input and not yet given out are buffer[pos, limit)
+    private int pos, limit;
+    private final StringBuilder block = new StringBuilder();
+    // where the next character read is, and where the last block returned starts
+    private int line = 1, column = 1, blockLine, blockColumn;
+
+    public BlockReader(Reader input) {
+        this.input = input;
+    }
+
+    // the next block, or null at the end of the input; text after the last ';;' is a block too, unless it is
+    // only whitespace
+    public String next() throws IOException {
+        block.setLength(0);
+        blockLine = line;
+        blockColumn = column;
+        boolean semicolon = false;
+        while (true) {
+            if (pos == limit) {
+                pos = 0;
+                limit = Math.max(0, input.read(buffer, 0, buffer.length));
+                if (limit == 0)
+                    return isBlank(block) ? null : block.toString();
+            }
+            int start = pos;
+            while (pos < limit) {
+                char c = buffer[pos++];
+                if (c == '\n') {
+                    line++;
+                    column = 1;
+                } else
+                    column++;
+                if (c == ';' && semicolon) {
+                    block.append(buffer, start, pos - start);
+                    return block.toString();
+                }
+                semicolon = c == ';';
+            }
+            block.append(buffer, start, pos - start);
+        }
+    }
+
+    public int getLine() {
+        return blockLine;
+    }
+
+    public int getColumn() {
+        return blockColumn;
+    }
+
+    private static boolean isBlank(CharSequence text) {
+        for (int i = 0; i < text.length(); i++)
+            if (!Character.isWhitespace(text.charAt(i)))
+                return false;
+        return true;
+    }
+}
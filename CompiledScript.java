@@ -0,0 +1,65 @@
+import constructs.Expression;
+import exceptions.*;
+import java.util.ArrayList;
+import java.util.List;
+import types.Type;
+import values.Lis;
+
+// A script compiled by an Engine, which runs it any number of times, from any number of threads at once. Its blocks
+// are never changed once compiled. Running them writes only two things that other runs can see: the caches of call
+// sites (FunctionalApplication.callee), which every thread fills with the same body, and, in the functions of the
+// prelude that every run shares, the call counters and compiled code of Interpreter's tiering. Calls are counted
+// and code is dropped atomically, and each call reads the code once, so a function is compiled once and a racing
+// run at most interprets a call whose code another run has just dropped; each gets the result of a run on its own.
+public final class CompiledScript {
+    private final Engine engine;
+    private final List<Expression> blocks;
+    private final List<String> parameters;
+    private final List<Type> types;
+    // the global slot of the first parameter, and the number of global slots the script uses
+    private final int first, size;
+
+    CompiledScript(Engine engine, List<Expression> blocks, List<String> parameters, List<Type> types, int first,
+            int size) {
+        this.engine = engine;
+        this.blocks = List.copyOf(blocks);
+        this.parameters = parameters;
+        this.types = List.copyOf(types);
+        this.first = first;
+        this.size = size;
+    }
+
+    // runs the script with a value for each parameter, in order, and returns the value of its last block, null if it
+    // has none; the arguments are integers, booleans or lists of them, checked against the types of the parameters
+    public Expression eval(Expression... arguments) throws ZeroDividerException, UnknownCommandException,
+            TypeMismatchException, NoBindingException, WrongSyntaxException {
+        if (arguments.length != parameters.size())
+            throw new WrongSyntaxException("script of " + parameters.size() + " parameter"
+                    + (parameters.size() == 1 ? "" : "s") + " run with " + arguments.length + " argument"
+                    + (arguments.length == 1 ? "" : "s"));
+        TypeInference.check(types, parameters, arguments);
+        Expression[] typed = arguments.clone();
+        for (int i = 0; i < typed.length; i++)
+            typed[i] = typed(typed[i]);
+        return engine.eval(blocks, typed, first, size);
+    }
+
+    // the value with a type sample in every list of it that has elements, as the list operations of the
+    // interpreter expect and Lis.of(elements, null) leaves out
+    private static Expression typed(Expression value) {
+        if (!(value instanceof Lis list) || list.isEmpty())
+            return value;
+        List<Expression> elements = new ArrayList<>(list.size());
+        boolean changed = list.type == null;
+        for (Expression element : list) {
+            Expression copy = typed(element);
+            changed |= copy != element;
+            elements.add(copy);
+        }
+        return changed ? Lis.of(elements, list.type != null ? list.type : elements.get(0)) : value;
+    }
+
+    public List<String> parameters() {
+        return parameters;
+    }
+}
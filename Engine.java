@@ -0,0 +1,125 @@
+import constructs.Expression;
+import constructs.Frame;
+import exceptions.*;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import types.Type;
+
+// Runs MiniCaml scripts for a Java program, from any number of threads at once, virtual ones included. An engine
+// is made from a prelude, whose declarations are run once into a global environment that every script reads and
+// none ever changes. compile() turns the source of a script into a CompiledScript, kept by its source and
+// parameters so that the same script is compiled once, and each eval() of it runs on an environment of its own:
+// a copy of the global frame, which the script's own declarations and arguments are added to. Compiling resolves,
+// types and optimizes with copies of what the engine knows of the globals; the lexer, parser and the rest are
+// made for every compilation, so nothing in them is shared.
+public class Engine {
+    // the most scripts kept compiled, the least recently used going first
+    public static final int CAPACITY = 1024;
+
+    private record Key(String source, List<String> parameters) {
+    }
+
+    private final Resolver resolver = new Resolver();
+    private final TypeInference typer = new TypeInference();
+    private final Optimizer optimizer = new Optimizer();
+    private final Interpreter interpreter = new Interpreter();
+    private final Frame globals = new Frame(null, new Expression[16]);
+    private final LinkedHashMap<Key, CompiledScript> scripts = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, CompiledScript> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+
+    public Engine() {
+    }
+
+    public Engine(String prelude) throws IllegalTokenException, WrongSyntaxException, NoBindingException,
+            TypeMismatchException, ZeroDividerException, UnknownCommandException {
+        for (Expression block : blocks(prelude, resolver, typer, optimizer))
+            interpreter.eval(block, globals);
+    }
+
+    // the script, compiled now or taken from the scripts compiled before; its parameters are globals bound by the
+    // arguments of every eval(), with the types their uses in the script give them
+    public CompiledScript compile(String source, String... parameters) throws IllegalTokenException,
+            WrongSyntaxException, NoBindingException, TypeMismatchException {
+        Key key = new Key(source, List.of(parameters));
+        synchronized (scripts) {
+            CompiledScript script = scripts.get(key);
+            if (script != null)
+                return script;
+        }
+        // compiled outside the lock, so that other scripts are not held up; a script compiled twice at once is
+        // kept once
+        Resolver resolver = new Resolver(this.resolver);
+        TypeInference typer = new TypeInference(this.typer);
+        List<Type> types = new ArrayList<>(parameters.length);
+        int first = resolver.globals();
+        for (String parameter : parameters)
+            types.add(typer.parameter(resolver.declare(parameter)));
+        List<Expression> blocks = blocks(source, resolver, typer, new Optimizer(optimizer));
+        CompiledScript script = new CompiledScript(this, blocks, key.parameters(), types, first,
+                resolver.globals());
+        synchronized (scripts) {
+            CompiledScript other = scripts.putIfAbsent(key, script);
+            return other != null ? other : script;
+        }
+    }
+
+    // the blocks of 'source', each ready to run after the ones before it
+    private static List<Expression> blocks(String source, Resolver resolver, TypeInference typer,
+            Optimizer optimizer) throws IllegalTokenException, WrongSyntaxException, NoBindingException,
+            TypeMismatchException {
+        BlockReader reader = new BlockReader(new StringReader(source));
+        Lexer lexer = new Lexer();
+        Parser parser = new Parser();
+        Fusion fusion = new Fusion();
+        List<Expression> blocks = new ArrayList<>();
+        for (String text = next(reader); text != null; text = next(reader)) {
+            lexer.setInput(text, reader.getLine(), reader.getColumn());
+            lexer.tokenize();
+            parser.setInput(lexer.getResult());
+            parser.parse();
+            Expression parsed = parser.getResult();
+            resolver.resolve(parsed);
+            typer.infer(parsed);
+            blocks.add(fusion.fuse(optimizer.optimize(parsed, true)));
+        }
+        return blocks;
+    }
+
+    private static String next(BlockReader reader) {
+        try {
+            return reader.next();
+        } catch (IOException e) {
+            // a StringReader does not fail
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // runs the blocks of a script on a global frame of its own, made of the globals of the engine followed by
+    // 'arguments', with room for the declarations of the script
+    Expression eval(List<Expression> blocks, Expression[] arguments, int first, int size)
+            throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+            WrongSyntaxException {
+        Expression[] slots = new Expression[size];
+        System.arraycopy(globals.slots, 0, slots, 0, Math.min(first, globals.slots.length));
+        System.arraycopy(arguments, 0, slots, first, arguments.length);
+        Frame env = new Frame(null, slots);
+        Expression result = null;
+        for (Expression block : blocks)
+            result = interpreter.eval(block, env);
+        return result;
+    }
+
+    // a value written as Main prints it; the null that a block without a value gives, like List.hd or List.fold of
+    // an empty list, is written "null"
+    public String printValue(Expression value) {
+        return value == null ? "null" : interpreter.printValue(value);
+    }
+}
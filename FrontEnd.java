@@ -0,0 +1,125 @@
+import constructs.Expression;
+import exceptions.IllegalTokenException;
+import exceptions.WrongSyntaxException;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Reads, lexes and parses the blocks of a program ahead of their evaluation. One thread reads the blocks in
+// order and hands each to a pool of parsing threads, every one with a lexer and a parser of its own; the blocks
+// come out of next() in the order they were read, and an error found reading or parsing a block is thrown when
+// that block is reached, after the blocks before it have been run. Resolving stays with the caller, since it
+// depends on the declarations of earlier blocks. With a single core there is nothing to overlap, and next() reads
+// and parses each block itself.
+public class FrontEnd {
+    // blocks read and not yet taken, which bounds the memory the front end can run ahead with
+    private static final int AHEAD = 64;
+
+    public static class Block {
+        public final String text;
+        private final Expression expression;
+        private final Throwable error;
+
+        private Block(String text, Expression expression, Throwable error) {
+            this.text = text;
+            this.expression = expression;
+            this.error = error;
+        }
+
+        // the tree of the block, or the error found lexing or parsing it
+        public Expression parse() throws IllegalTokenException, WrongSyntaxException {
+            switch (error) {
+                case null -> {
+                    return expression;
+                }
+                case IllegalTokenException e -> throw e;
+                case WrongSyntaxException e -> throw e;
+                case RuntimeException e -> throw e;
+                case Error e -> throw e;
+                default -> throw new IllegalStateException(error);
+            }
+        }
+    }
+
+    // every thread lexes and parses with instances of its own, which keep their token arrays from block to block
+    private static final ThreadLocal<Lexer> lexers = ThreadLocal.withInitial(Lexer::new);
+    private static final ThreadLocal<Parser> parsers = ThreadLocal.withInitial(Parser::new);
+
+    private final BlockReader reader;
+    private final BlockingQueue<Future<Block>> blocks = new ArrayBlockingQueue<>(AHEAD);
+    // null when blocks are parsed on the calling thread
+    private final ExecutorService pool;
+    private boolean ended;
+
+    public FrontEnd(BlockReader reader) {
+        this.reader = reader;
+        int threads = Runtime.getRuntime().availableProcessors() - 1;
+        if (threads < 1) {
+            pool = null;
+            return;
+        }
+        pool = Executors.newFixedThreadPool(threads, Thread.ofPlatform().daemon().name("parser-", 0).factory());
+        Thread.ofPlatform().daemon().name("reader").start(this::read);
+    }
+
+    // the next block, or null after the last one
+    public Block next() throws IOException, InterruptedException {
+        if (pool == null) {
+            String text = reader.next();
+            return text == null ? null : parse(text, reader.getLine(), reader.getColumn());
+        }
+        if (ended)
+            return null;
+        try {
+            Block block = blocks.take().get();
+            if (block == null) {
+                ended = true;
+                pool.shutdown();
+            }
+            return block;
+        } catch (ExecutionException e) {
+            ended = true;
+            pool.shutdown();
+            if (e.getCause() instanceof IOException io)
+                throw io;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void read() {
+        try {
+            try {
+                for (String text = reader.next(); text != null; text = reader.next()) {
+                    String block = text;
+                    int line = reader.getLine(), column = reader.getColumn();
+                    blocks.put(pool.submit(() -> parse(block, line, column)));
+                }
+                // the end of the input
+                blocks.put(CompletableFuture.completedFuture(null));
+            } catch (IOException e) {
+                blocks.put(CompletableFuture.failedFuture(e));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Block parse(String text, int line, int column) {
+        try {
+            Lexer lexer = lexers.get();
+            lexer.setInput(text, line, column);
+            lexer.tokenize();
+            Parser parser = parsers.get();
+            parser.setInput(lexer.getResult());
+            parser.parse();
+            return new Block(text, parser.getResult(), null);
+        } catch (Exception | StackOverflowError e) {
+            return new Block(text, null, e);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+import constructs.*;
+import java.util.List;
+
+// Rewrites a chain of list operations into one pass over a lazy sequence, so that
+// List.fold f a (List.filter p (List.map g l)) builds no list in between: the map and the filter become stages
+// of a Seq over l, which the fold consumes element by element. A chain ending in exists or forAll stops at the
+// first element that decides it, one ending in map or filter builds only its final list. Each element goes
+// through all the stages before the next one starts, so when several applications fail a different one may be
+// reported first. The pass runs on the calling thread: a map or filter of a list long enough for runtime.Parallel,
+// which List.map and List.filter alone would split across threads for a pure function, runs sequentially once
+// fused, trading threads for the lists it no longer builds.
+public class Fusion {
+
+    public Expression fuse(Expression e) {
+        switch (e) {
+            case null -> {
+                return null;
+            }
+            case ListOperation lop when consumer(lop.op.code) && stage(lop.list) -> {
+                Expression source = stages(lop.list);
+                switch (lop.op.code) {
+                    case FOLD -> {
+                        return seq(Operator.FOLD, fuse(lop.arg1), fuse(lop.arg2), source);
+                    }
+                    case LENGTH -> {
+                        return seq(Operator.LENGTH, source);
+                    }
+                    case EXISTS, FOR_ALL -> {
+                        return seq(lop.op.code, fuse(lop.arg2), source);
+                    }
+                    default -> {
+                        return seq(Operator.TO_LIST, seq(lop.op.code, fuse(lop.arg2), source));
+                    }
+                }
+            }
+            case ListOperation lop -> {
+                lop.arg1 = fuse(lop.arg1);
+                lop.arg2 = fuse(lop.arg2);
+                lop.list = fuse(lop.list);
+            }
+            case SeqOperation sop -> fuse(sop.args);
+            case AnonymusFunction f -> f.body = fuse(f.body);
+            case ListLiteral l -> fuse(l.elements);
+            case BinaryOperation bop -> {
+                bop.e1 = fuse(bop.e1);
+                bop.e2 = fuse(bop.e2);
+            }
+            case UnaryOperation uop -> uop.arg = fuse(uop.arg);
+            case Ifthenelse ifte -> {
+                ifte.guard = fuse(ifte.guard);
+                ifte.then = fuse(ifte.then);
+                ifte.els = fuse(ifte.els);
+            }
+            case Let let -> {
+                let.value = fuse(let.value);
+                let.body = fuse(let.body);
+            }
+            case Letrec letr -> {
+                letr.fbody = fuse(letr.fbody);
+                letr.letbody = fuse(letr.letbody);
+            }
+            case FunctionalApplication app -> {
+                app.iden = fuse(app.iden);
+                fuse(app.actualParams);
+            }
+            default -> {
+            }
+        }
+        return e;
+    }
+
+    private void fuse(List<Expression> expressions) {
+        expressions.replaceAll(this::fuse);
+    }
+
+    // the operations that can take their list from a sequence
+    private static boolean consumer(Operator op) {
+        return switch (op) {
+            case MAP, FILTER, FOLD, EXISTS, FOR_ALL, LENGTH -> true;
+            default -> false;
+        };
+    }
+
+    private static boolean stage(Expression e) {
+        return e instanceof ListOperation lop
+                && (lop.op.code == Operator.MAP || lop.op.code == Operator.FILTER);
+    }
+
+    // the maps and filters of a chain as stages of a sequence over the list they start from
+    private Expression stages(Expression list) {
+        if (stage(list)) {
+            ListOperation lop = (ListOperation) list;
+            return seq(lop.op.code, fuse(lop.arg2), stages(lop.list));
+        }
+        return seq(Operator.OF_LIST, fuse(list));
+    }
+
+    private static SeqOperation seq(Operator op, Expression... args) {
+        SeqOperation sop = new SeqOperation();
+        sop.op = new Symbol(op);
+        sop.args.addAll(List.of(args));
+        return sop;
+    }
+}
@@ -0,0 +1,336 @@
+import constructs.*;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import values.*;
+
+// Replaces calls of small functions known at the call site by their bodies. A function is known when the callee is
+// a function literal, or a variable bound by let to one (in the block, or by a top-level let of an earlier
+// block); functions declared with let rec are never inlined. The body is copied with every parameter replaced by
+// its argument when that is a literal or a variable, and bound by a let in front of the body otherwise, so the
+// arguments are still evaluated once each, in order, before the body. Calls inside a function are inlined before
+// its size is measured, so a function only ever grows by at most INLINE_SIZE nodes per call inlined in it.
+public class Inliner {
+    // functions whose body has at most this many nodes are inlined
+    static final int INLINE_SIZE = 16;
+
+    // a function known at some point of the block, with the number of local frames around its definition
+    private record Known(AnonymusFunction function, int depth) {
+    }
+
+    // the small functions bound by top-level declarations, by global slot, or null
+    private final List<Known> globals = new ArrayList<>();
+    // local frames of the block, innermost first, with the small functions bound in their slots
+    private final LinkedList<Known[]> scopes = new LinkedList<>();
+    private boolean inlined;
+
+    public Inliner() {
+    }
+
+    // an inliner that knows the small functions of the globals 'shared' knows, and records those declared after on
+    // its own
+    public Inliner(Inliner shared) {
+        globals.addAll(shared.globals);
+    }
+
+    // the block with the calls of small functions replaced, which may be a new root
+    public Expression inline(Expression e) {
+        scopes.clear();
+        inlined = false;
+        Expression result = visit(e);
+        if (result instanceof Let let && let.body == null && ((Identifier) let.var).slot >= 0) {
+            int slot = ((Identifier) let.var).slot;
+            while (globals.size() <= slot)
+                globals.add(null);
+            globals.set(slot, known(let.value));
+        }
+        return result;
+    }
+
+    // whether the last inline() replaced any call
+    public boolean inlined() {
+        return inlined;
+    }
+
+    private Expression visit(Expression e) {
+        switch (e) {
+            case null -> {
+                return null;
+            }
+            case AnonymusFunction f -> f.body = inFrame(new Known[f.formalParams.size()], f.body);
+            case ListLiteral l -> l.elements.replaceAll(this::visit);
+            case BinaryOperation bop -> {
+                bop.e1 = visit(bop.e1);
+                bop.e2 = visit(bop.e2);
+            }
+            case UnaryOperation uop -> uop.arg = visit(uop.arg);
+            case Ifthenelse ifte -> {
+                ifte.guard = visit(ifte.guard);
+                ifte.then = visit(ifte.then);
+                ifte.els = visit(ifte.els);
+            }
+            case Let let -> {
+                let.value = visit(let.value);
+                let.body = inFrame(new Known[] { known(let.value) }, let.body);
+            }
+            case Letrec letr -> {
+                letr.fbody = inFrame(new Known[letr.params.size() + 1], letr.fbody);
+                letr.letbody = inFrame(new Known[1], letr.letbody);
+            }
+            case FunctionalApplication app -> {
+                app.iden = visit(app.iden);
+                app.actualParams.replaceAll(this::visit);
+                Known callee = callee(app.iden);
+                if (callee != null && callee.function.formalParams.size() == app.actualParams.size()) {
+                    inlined = true;
+                    return body(callee, app.actualParams);
+                }
+            }
+            case ListOperation lop -> {
+                lop.arg1 = visit(lop.arg1);
+                lop.arg2 = visit(lop.arg2);
+                lop.list = visit(lop.list);
+            }
+            case SeqOperation sop -> sop.args.replaceAll(this::visit);
+            default -> {
+            }
+        }
+        return e;
+    }
+
+    private Expression inFrame(Known[] frame, Expression body) {
+        if (body == null)
+            return null;
+        scopes.push(frame);
+        Expression result = visit(body);
+        scopes.pop();
+        return result;
+    }
+
+    // the function if it is small enough to inline, with the frames around the point it is evaluated at
+    private Known known(Expression value) {
+        if (value instanceof AnonymusFunction f && size(f.body) <= INLINE_SIZE)
+            return new Known(f, scopes.size());
+        return null;
+    }
+
+    private Known callee(Expression iden) {
+        switch (iden) {
+            case AnonymusFunction _ -> {
+                return known(iden);
+            }
+            case Identifier id when id.depth < scopes.size() -> {
+                return scopes.get(id.depth)[id.slot];
+            }
+            case Identifier id when id.depth == scopes.size() && id.slot < globals.size() -> {
+                return globals.get(id.slot);
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+
+    // the body of the function for the arguments, as it is evaluated at the call site
+    private Expression body(Known callee, List<Expression> args) {
+        // the arguments that are not literals or variables are bound by lets, the first one outermost
+        List<Expression> bound = new ArrayList<>();
+        int[] lets = new int[args.size()];
+        for (int i = 0; i < args.size(); i++) {
+            Expression arg = args.get(i);
+            lets[i] = arg instanceof Int || arg instanceof Bool || arg instanceof Identifier ? -1 : bound.size();
+            if (lets[i] >= 0)
+                bound.add(shift(arg, 0, bound.size()));
+        }
+        Expression result = copy(callee.function.body, 0, args, lets, bound.size(),
+                scopes.size() - callee.depth);
+        for (int i = args.size() - 1; i >= 0; i--) {
+            if (lets[i] < 0)
+                continue;
+            Let let = new Let();
+            let.var = callee.function.formalParams.get(i);
+            let.value = bound.get(lets[i]);
+            let.body = result;
+            result = let;
+        }
+        return result;
+    }
+
+    // a copy of the function body 'e', 'nest' frames deep in it; the parameters are replaced by their arguments,
+    // or the lets binding them, and variables of outer frames are reached 'outer' frames further away
+    private static Expression copy(Expression e, int nest, List<Expression> args, int[] lets, int bound,
+            int outer) {
+        switch (e) {
+            case null -> {
+                return null;
+            }
+            case Identifier id when id.depth == nest -> {
+                if (lets[id.slot] >= 0)
+                    return identifier(id.value, nest + bound - 1 - lets[id.slot], 0);
+                return shift(args.get(id.slot), 0, nest + bound);
+            }
+            case Identifier id when id.depth > nest -> {
+                return identifier(id.value, id.depth - 1 + bound + outer, id.slot);
+            }
+            default -> {
+                return rebuild(e, nest, (child, depth) -> copy(child, depth, args, lets, bound, outer));
+            }
+        }
+    }
+
+    // a copy of 'e' with the variables of frames outside it reached 'by' frames further away
+    private static Expression shift(Expression e, int nest, int by) {
+        if (e instanceof Identifier id && id.depth >= nest)
+            return identifier(id.value, id.depth + by, id.slot);
+        return rebuild(e, nest, (child, depth) -> shift(child, depth, by));
+    }
+
+    private interface Copier {
+        Expression copy(Expression child, int nest);
+    }
+
+    // a copy of 'e' made of the copies of its parts, each with the number of frames around it
+    private static Expression rebuild(Expression e, int nest, Copier copier) {
+        switch (e) {
+            case null -> {
+                return null;
+            }
+            case Identifier id -> {
+                return identifier(id.value, id.depth, id.slot);
+            }
+            case AnonymusFunction f -> {
+                AnonymusFunction copy = new AnonymusFunction();
+                copy.formalParams = f.formalParams;
+                copy.body = copier.copy(f.body, nest + 1);
+                return copy;
+            }
+            case ListLiteral l -> {
+                ListLiteral copy = new ListLiteral();
+                for (Expression element : l.elements)
+                    copy.elements.add(copier.copy(element, nest));
+                copy.typed = l.typed;
+                return copy;
+            }
+            case BinaryOperation bop -> {
+                BinaryOperation copy = new BinaryOperation();
+                copy.op = bop.op;
+                copy.e1 = copier.copy(bop.e1, nest);
+                copy.e2 = copier.copy(bop.e2, nest);
+                return copy;
+            }
+            case UnaryOperation uop -> {
+                UnaryOperation copy = new UnaryOperation();
+                copy.op = uop.op;
+                copy.arg = copier.copy(uop.arg, nest);
+                return copy;
+            }
+            case Ifthenelse ifte -> {
+                Ifthenelse copy = new Ifthenelse();
+                copy.guard = copier.copy(ifte.guard, nest);
+                copy.then = copier.copy(ifte.then, nest);
+                copy.els = copier.copy(ifte.els, nest);
+                copy.typed = ifte.typed;
+                return copy;
+            }
+            case Let let -> {
+                Let copy = new Let();
+                copy.var = let.var;
+                copy.value = copier.copy(let.value, nest);
+                copy.body = copier.copy(let.body, nest + 1);
+                return copy;
+            }
+            case Letrec letr -> {
+                Letrec copy = new Letrec();
+                copy.name = letr.name;
+                copy.params = letr.params;
+                copy.fbody = copier.copy(letr.fbody, nest + 1);
+                copy.letbody = copier.copy(letr.letbody, nest + 1);
+                return copy;
+            }
+            case FunctionalApplication app -> {
+                FunctionalApplication copy = new FunctionalApplication();
+                copy.iden = copier.copy(app.iden, nest);
+                copy.actualParams = new ArrayList<>(app.actualParams.size());
+                for (Expression param : app.actualParams)
+                    copy.actualParams.add(copier.copy(param, nest));
+                return copy;
+            }
+            case ListOperation lop -> {
+                ListOperation copy = new ListOperation();
+                copy.op = lop.op;
+                copy.arg1 = copier.copy(lop.arg1, nest);
+                copy.arg2 = copier.copy(lop.arg2, nest);
+                copy.list = copier.copy(lop.list, nest);
+                copy.typed = lop.typed;
+                return copy;
+            }
+            case SeqOperation sop -> {
+                SeqOperation copy = new SeqOperation();
+                copy.op = sop.op;
+                for (Expression arg : sop.args)
+                    copy.args.add(copier.copy(arg, nest));
+                return copy;
+            }
+            // literals are values, which are never changed
+            default -> {
+                return e;
+            }
+        }
+    }
+
+    private static Identifier identifier(String name, int depth, int slot) {
+        Identifier id = new Identifier(name);
+        id.depth = depth;
+        id.slot = slot;
+        return id;
+    }
+
+    // the number of nodes of 'e'
+    private static int size(Expression e) {
+        switch (e) {
+            case null -> {
+                return 0;
+            }
+            case AnonymusFunction f -> {
+                return 1 + size(f.body);
+            }
+            case ListLiteral l -> {
+                return 1 + size(l.elements);
+            }
+            case BinaryOperation bop -> {
+                return 1 + size(bop.e1) + size(bop.e2);
+            }
+            case UnaryOperation uop -> {
+                return 1 + size(uop.arg);
+            }
+            case Ifthenelse ifte -> {
+                return 1 + size(ifte.guard) + size(ifte.then) + size(ifte.els);
+            }
+            case Let let -> {
+                return 1 + size(let.value) + size(let.body);
+            }
+            case Letrec letr -> {
+                return 1 + size(letr.fbody) + size(letr.letbody);
+            }
+            case FunctionalApplication app -> {
+                return 1 + size(app.iden) + size(app.actualParams);
+            }
+            case ListOperation lop -> {
+                return 1 + size(lop.arg1) + size(lop.arg2) + size(lop.list);
+            }
+            case SeqOperation sop -> {
+                return 1 + size(sop.args);
+            }
+            default -> {
+                return 1;
+            }
+        }
+    }
+
+    private static int size(List<Expression> expressions) {
+        int size = 0;
+        for (Expression e : expressions)
+            size += size(e);
+        return size;
+    }
+}
@@ -1,404 +1,603 @@
 import constructs.*;
 import exceptions.*;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Objects;
+import jit.CompiledFunction;
+import jit.FunctionCompiler;
+import runtime.Effects;
+import runtime.Memo;
+import runtime.Operations;
+import runtime.Parallel;
+import runtime.Profiler;
+import runtime.Sequences;
 import values.*;
 
 public class Interpreter {
+    // a function called this many times is compiled to JVM bytecode, when its body allows it
+    static final int TIER_UP_CALLS = 1000;
 
-    @SuppressWarnings("unchecked")
-    public Expression eval(Expression e, List<Binding> env)
+    // the call counters and compiled code of functions, which the threads of Parallel and of every CompiledScript
+    // of an Engine update at once: calls are counted atomically, so exactly one call makes a function hot, and code
+    // is dropped only if no other thread has replaced it meanwhile
+    private static final VarHandle CLOSURE_CALLS = handle(Closure.class, "calls", int.class);
+    private static final VarHandle CLOSURE_CODE = handle(Closure.class, "code", CompiledFunction.class);
+    private static final VarHandle REC_CALLS = handle(RecursiveClosure.class, "calls", int.class);
+    private static final VarHandle REC_CODE = handle(RecursiveClosure.class, "code", CompiledFunction.class);
+
+    // the frame names of the list operations, by Operator ordinal
+    private static final String[] LIST_OPERATIONS = Arrays.stream(Operator.values()).map(op -> "List." + op.text)
+            .toArray(String[]::new);
+
+    private final boolean tiered;
+    // the results of pure recursive functions, or null when they are not memoized
+    private final Memo memo;
+    // the frames of calls, list operations and blocks, under --profile; null otherwise
+    private final Profiler profiler;
+
+    public Interpreter() {
+        this(true);
+    }
+
+    public Interpreter(boolean tiered) {
+        this(tiered, null);
+    }
+
+    public Interpreter(boolean tiered, Memo memo) {
+        this(tiered, memo, null);
+    }
+
+    // a profiled call runs its body in a nested evaluation, to exit its frame after it, and is never compiled; a call
+    // in tail position replaces the frame of its caller instead, so tail recursion still runs in constant stack
+    public Interpreter(boolean tiered, Memo memo, Profiler profiler) {
+        this.tiered = tiered;
+        this.memo = memo;
+        this.profiler = profiler;
+    }
+
+    public Expression eval(Expression e, Frame env)
             throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
             WrongSyntaxException {
-        Int ret_int = new Int();
-        Bool ret_bool = new Bool();
-        switch (e) {
-            case Int i -> {
-                return i;
-            }
-            case Bool b -> {
-                return b;
-            }
-            case Identifier id -> {
-                Expression val = lookup(id, env);
-                return val;
-            }
-            case AnonymusFunction f -> {
-                for (Expression param : f.formalParams)
-                    typecheck(param, new Identifier());
-                return new Closure(f.formalParams, f.body, env);
-            }
-            case Lis l -> {
-                if (!l.lis.isEmpty()) {
-                    if (l.type == null) {
-                        Expression first = eval(l.lis.getFirst(), env);
-                        switch (first) {
-                            case Int i -> l.type = i;
-                            case Bool b -> l.type = b;
-                            case Closure c -> l.type = c;
-                            case RecursiveClosure rc -> l.type = rc;
-                            case Lis li -> l.type = li;
-                            default -> throw new TypeMismatchException(
-                                    "unexpected type '" + first.getClass().getSimpleName() + "' inside list");
-                        }
-                    }
-                    for (int i = 0; i < l.lis.size(); i++) {
-                        Expression element = eval(l.lis.get(i), env);
-                        typecheck(element, l.type);
-                        l.lis.set(i, element);
-                    }
+        return eval(e, env, false);
+    }
+
+    // 'framed' when 'e' is the body of a call that entered a frame of the profile
+    private Expression eval(Expression e, Frame env, boolean framed)
+            throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+            WrongSyntaxException {
+        // calls in tail position (if branches, let bodies, function bodies) loop here instead of recursing,
+        // so tail recursive functions run in constant Java stack
+        boolean tail = false;
+        while (true) {
+            switch (e) {
+                case Int i -> {
+                    return i;
                 }
-                return l;
-            }
-            case BinaryOperation bop -> {
-                Expression e1 = eval(bop.e1, env), e2 = eval(bop.e2, env);
-                switch (bop.op.value) {
-                    case "+" -> {
-                        typecheck(e1, new Int());
-                        typecheck(e2, new Int());
-                        ret_int.value = ((Int) e1).value + ((Int) e2).value;
-                        return ret_int;
-                    }
-                    case "-" -> {
-                        typecheck(e1, new Int());
-                        typecheck(e2, new Int());
-                        ret_int.value = ((Int) e1).value - ((Int) e2).value;
-                        return ret_int;
-                    }
-                    case "*" -> {
-                        typecheck(e1, new Int());
-                        typecheck(e2, new Int());
-                        ret_int.value = ((Int) e1).value * ((Int) e2).value;
-                        return ret_int;
-                    }
-                    case "/" -> {
-                        typecheck(e1, new Int());
-                        typecheck(e2, new Int());
-                        if (((Int) e2).value == 0)
-                            throw new ZeroDividerException("cannot divide by zero");
-                        ret_int.value = ((Int) e1).value / ((Int) e2).value;
-                        return ret_int;
-                    }
-                    case "&" -> {
-                        typecheck(e1, new Bool());
-                        typecheck(e2, new Bool());
-                        ret_bool.value = ((Bool) e1).value && ((Bool) e2).value;
-                        return ret_bool;
-                    }
-                    case "|" -> {
-                        typecheck(e1, new Bool());
-                        typecheck(e2, new Bool());
-                        ret_bool.value = ((Bool) e1).value || ((Bool) e2).value;
-                        return ret_bool;
-                    }
-                    case ">" -> {
-                        typecheck(e1, new Int());
-                        typecheck(e2, new Int());
-                        ret_bool.value = ((Int) e1).value > ((Int) e2).value;
-                        return ret_bool;
-                    }
-                    case "<" -> {
-                        typecheck(e1, new Int());
-                        typecheck(e2, new Int());
-                        ret_bool.value = ((Int) e1).value < ((Int) e2).value;
-                        return ret_bool;
-                    }
-                    case ">=" -> {
-                        typecheck(e1, new Int());
-                        typecheck(e2, new Int());
-                        ret_bool.value = ((Int) e1).value >= ((Int) e2).value;
-                        return ret_bool;
-                    }
-                    case "<=" -> {
-                        typecheck(e1, new Int());
-                        typecheck(e2, new Int());
-                        ret_bool.value = ((Int) e1).value <= ((Int) e2).value;
-                        return ret_bool;
-                    }
-                    case "%" -> {
-                        typecheck(e1, new Int());
-                        typecheck(e2, new Int());
-                        ret_int.value = ((Int) e1).value % ((Int) e2).value;
-                        return ret_int;
-                    }
-                    case "^" -> {
-                        typecheck(e2, e1);
-                        if (e1 instanceof Bool b1 && e2 instanceof Bool b2) {
-                            ret_bool.value = b1.value ^ b2.value;
-                            return ret_bool;
-                        } else if (e1 instanceof Int i1 && e2 instanceof Int i2) {
-                            ret_int.value = i1.value ^ i2.value;
-                            return ret_int;
-                        } else
-                            throw new TypeMismatchException(
-                                    "unexpected type '" + e1.getClass().getSimpleName() + "' passed to operation ^");
-                    }
-                    case "==" -> {
-                        typecheck(e2, e1);
-                        if (e1 instanceof Bool b1 && e2 instanceof Bool b2)
-                            ret_bool.value = Objects.equals(b1.value, b2.value);
-                        else if (e1 instanceof Int i1 && e2 instanceof Int i2)
-                            ret_bool.value = Objects.equals(i1.value, i2.value);
-                        else
-                            throw new TypeMismatchException(
-                                    "unexpected type '" + e1.getClass().getSimpleName() + "' passed to operation ==");
-                        return ret_bool;
-                    }
-                    case "!=" -> {
-                        typecheck(e2, e1);
-                        if (e1 instanceof Bool b1 && e2 instanceof Bool b2)
-                            ret_bool.value = !Objects.equals(b1.value, b2.value);
-                        else if (e1 instanceof Int i1 && e2 instanceof Int i2)
-                            ret_bool.value = !Objects.equals(i1.value, i2.value);
-                        else
-                            throw new TypeMismatchException(
-                                    "unexpected type '" + e1.getClass().getSimpleName() + "' passed to operation !=");
-                        return ret_bool;
-                    }
-                    default -> throw new UnknownCommandException("unknown operation '" + bop.op.value + "'");
+                case Bool b -> {
+                    return b;
                 }
-            }
-            case UnaryOperation uop -> {
-                Expression arg = eval(uop.arg, env);
-                switch (uop.op.value) {
-                    case "!" -> {
-                        typecheck(arg, new Bool());
-                        ret_bool.value = !((Bool) arg).value;
-                        return ret_bool;
+                case Identifier id -> {
+                    Expression val = lookup(id, env);
+                    return val;
+                }
+                case AnonymusFunction f -> {
+                    return new Closure(f.formalParams, f.body, env);
+                }
+                case ListLiteral l -> {
+                    List<Expression> elements = new ArrayList<>(l.elements.size());
+                    Expression type = null;
+                    for (Expression element : l.elements) {
+                        Expression value = eval(element, env);
+                        if (type == null)
+                            type = Operations.elementType(value);
+                        if (!l.typed)
+                            typecheck(value, type);
+                        elements.add(value);
                     }
-                    default -> throw new UnknownCommandException("unknown operation '" + uop.op.value + "'");
+                    return Lis.of(elements, type);
                 }
-            }
-            case Ifthenelse ifte -> {
-                Expression guard = eval(ifte.guard, env);
-                typecheck(guard, new Bool());
-                if (((Bool) guard).value == true)
-                    return eval(ifte.then, env);
-                else
-                    return eval(ifte.els, env);
-            }
-            case Let let -> {
-                typecheck(let.var, new Identifier());
-                if (let.params != null) {
-                    AnonymusFunction fun = new AnonymusFunction();
-                    fun.formalParams = let.params;
-                    fun.body = let.value;
-                    let.value = fun;
+                case BinaryOperation bop -> {
+                    Expression e1 = eval(bop.e1, env), e2 = eval(bop.e2, env);
+                    return Operations.binary(bop.op, e1, e2);
                 }
-                Expression value = eval(let.value, env);
-                Binding bin = new Binding((Identifier) let.var, value);
-                // creating a new env for the 'in' scope
-                if (let.body != null) {
-                    List<Binding> newEnv = bind(bin, env);
-                    return eval(let.body, newEnv);
-                } // extending the global env
-                else {
-                    env.add(bin);
-                    return value;
+                case UnaryOperation uop -> {
+                    return Operations.unary(uop.op, eval(uop.arg, env));
                 }
-            }
-            case Letrec letr -> {
-                typecheck(letr.name, new Identifier());
-                for (Expression param : letr.params)
-                    typecheck(param, new Identifier());
-                RecursiveClosure closure = new RecursiveClosure((Identifier) letr.name, letr.params, letr.fbody, env);
-                Binding bin = new Binding((Identifier) letr.name, closure);
-                // creating a new env for the 'in' scope
-                if (letr.letbody != null) {
-                    List<Binding> newEnv = bind(bin, env);
-                    return eval(letr.letbody, newEnv);
-                } // extending the global env
-                else {
-                    env.add(bin);
-                    return closure;
+                case Ifthenelse ifte -> {
+                    Expression guard = eval(ifte.guard, env);
+                    if (!ifte.typed)
+                        typecheck(guard, Bool.class);
+                    if (((Bool) guard).value == true)
+                        e = ifte.then;
+                    else
+                        e = ifte.els;
+                    tail = true;
+                    continue;
                 }
-            }
-            case FunctionalApplication app -> {
-                int i = 0;
-                Expression closure = eval(app.iden, env);
-                switch (closure) {
-                    case Closure clo -> {
-                        if (app.actualParams.size() != clo.params.size())
-                            throw new WrongSyntaxException(
-                                    "functional application parameters do not match the function signature");
-                        List<Binding> extFenv = clone(clo.fenv);
-                        for (Expression param : clo.params) {
-                            Expression aVal = eval(app.actualParams.get(i++), env);
-                            Binding bin = new Binding((Identifier) param, aVal);
-                            extFenv = bind(bin, extFenv);
-                        }
-                        return eval(clo.body, extFenv);
-                    }
-                    case RecursiveClosure rec -> {
-                        if (app.actualParams.size() != rec.params.size())
-                            throw new WrongSyntaxException(
-                                    "functional application parameters do not match the function signature");
-                        Binding bin = new Binding(rec.name, rec);
-                        List<Binding> extFenv = bind(bin, rec.fenv);
-                        for (Expression param : rec.params) {
-                            Expression aVal = eval(app.actualParams.get(i++), env);
-                            bin = new Binding((Identifier) param, aVal);
-                            extFenv = bind(bin, extFenv);
-                        }
-                        return eval(rec.body, extFenv);
+                case Let let -> {
+                    Expression value = eval(let.value, env);
+                    // the profile knows a function by the first variable it was bound to
+                    if (profiler != null && value instanceof Closure clo && clo.name == null)
+                        clo.name = ((Identifier) let.var).value;
+                    // creating a new env for the 'in' scope
+                    if (let.body != null) {
+                        env = new Frame(env, new Expression[] { value });
+                        e = let.body;
+                        tail = true;
+                        continue;
+                    } // extending the global env
+                    else {
+                        define((Identifier) let.var, value, env);
+                        return value;
                     }
-                    default -> throw new TypeMismatchException("not a functional value passed");
                 }
-            }
-            case ListOperation lop -> {
-                Lis newList = new Lis();
-                Expression list = eval(lop.list, env);
-                typecheck(list, new Lis());
-                Lis oplis = (Lis) list;
-                switch (lop.op.value) {
-                    case "cons" -> {
-                        Expression element = eval(lop.arg2, env);
-                        if (oplis.type == null)
-                            oplis.type = element;
-                        else
-                            typecheck(element, oplis.type);
-                        newList.type = oplis.type;
-                        newList.lis = (LinkedList<Expression>) oplis.lis.clone();
-                        newList.lis.addFirst(element);
-                        return newList;
-                    }
-                    case "hd" -> {
-                        return oplis.lis.peek();
-                    }
-                    case "tl" -> {
-                        if (!oplis.lis.isEmpty()) {
-                            newList.type = oplis.type;
-                            newList.lis = (LinkedList<Expression>) oplis.lis.clone();
-                            newList.lis.removeFirst();
-                            return newList;
-                        } else
-                            return null;
-                    }
-                    case "isEmpty" -> {
-                        return new Bool(oplis.lis.isEmpty());
-                    }
-                    case "length" -> {
-                        return new Int(oplis.lis.size());
-                    }
-                    case "append" -> {
-                        Expression list1 = eval(lop.arg2, env);
-                        typecheck(list1, new Lis());
-                        Lis arglis = (Lis) list1;
-                        if (!oplis.lis.isEmpty() && !arglis.lis.isEmpty())
-                            typecheck(oplis.type, arglis.type);
-                        newList.type = arglis.type;
-                        newList.lis = (LinkedList<Expression>) arglis.lis.clone();
-                        for (Expression elem : oplis.lis)
-                            newList.lis.addLast(elem);
-                        return newList;
-                    }
-                    case "map" -> {
-                        for (Expression elem : oplis.lis) {
-                            FunctionalApplication app = new FunctionalApplication();
-                            app.actualParams = new ArrayList<>();
-                            app.actualParams.add(elem);
-                            app.iden = lop.arg2;
-                            Expression newElem = eval(app, env);
-                            newList.lis.addLast(newElem);
-                        }
-                        return newList;
-                    }
-                    case "filter" -> {
-                        for (Expression elem : oplis.lis) {
-                            FunctionalApplication app = new FunctionalApplication();
-                            app.actualParams = new ArrayList<>();
-                            app.actualParams.add(elem);
-                            app.iden = lop.arg2;
-                            Expression result = eval(app, env);
-                            typecheck(result, new Bool());
-                            if (((Bool) result).value == true)
-                                newList.lis.addLast(elem);
-                        }
-                        return newList;
+                case Letrec letr -> {
+                    RecursiveClosure closure = new RecursiveClosure((Identifier) letr.name, letr.params, letr.fbody, env);
+                    closure.memoized = memo != null && Memo.memoizable(closure);
+                    // creating a new env for the 'in' scope
+                    if (letr.letbody != null) {
+                        env = new Frame(env, new Expression[] { closure });
+                        e = letr.letbody;
+                        tail = true;
+                        continue;
+                    } // extending the global env
+                    else {
+                        define((Identifier) letr.name, closure, env);
+                        return closure;
                     }
-                    case "exists" -> {
-                        Bool ret = new Bool(false);
-                        for (Expression elem : oplis.lis) {
-                            FunctionalApplication app = new FunctionalApplication();
-                            app.actualParams = new ArrayList<>();
-                            app.actualParams.add(elem);
-                            app.iden = lop.arg2;
-                            Expression result = eval(app, env);
-                            typecheck(result, new Bool());
-                            if (((Bool) result).value == true)
-                                ret.value = true;
+                }
+                case FunctionalApplication app -> {
+                    // the callee is most often a variable, looked up without another round of eval
+                    Expression closure = app.iden instanceof Identifier id ? lookup(id, env) : eval(app.iden, env);
+                    switch (closure) {
+                        case Closure clo -> {
+                            if (clo.body != app.callee) {
+                                if (app.actualParams.size() != clo.params.size())
+                                    throw new WrongSyntaxException(
+                                            "functional application parameters do not match the function signature");
+                                app.callee = clo.body;
+                            }
+                            Expression[] frame = new Expression[clo.params.size()];
+                            for (int i = 0; i < frame.length; i++)
+                                frame[i] = eval(app.actualParams.get(i), env);
+                            if (profiler != null) {
+                                if (!framed)
+                                    return profiled(name(clo), clo.body, new Frame(clo.fenv, frame));
+                                profiler.replace(name(clo));
+                            } else if (tiered) {
+                                Expression result = compiled(clo, frame);
+                                if (result != null)
+                                    return result;
+                            }
+                            env = new Frame(clo.fenv, frame);
+                            e = clo.body;
+                            tail = true;
+                            continue;
                         }
-                        return ret;
-                    }
-                    case "forAll" -> {
-                        Bool _ret = new Bool(true);
-                        for (Expression elem : oplis.lis) {
-                            FunctionalApplication app = new FunctionalApplication();
-                            app.actualParams = new ArrayList<>();
-                            app.actualParams.add(elem);
-                            app.iden = lop.arg2;
-                            Expression result = eval(app, env);
-                            typecheck(result, new Bool());
-                            if (((Bool) result).value == false)
-                                _ret.value = false;
+                        case RecursiveClosure rec -> {
+                            if (rec.body != app.callee) {
+                                if (app.actualParams.size() != rec.params.size())
+                                    throw new WrongSyntaxException(
+                                            "functional application parameters do not match the function signature");
+                                app.callee = rec.body;
+                            }
+                            Expression[] frame = new Expression[rec.params.size() + 1];
+                            frame[0] = rec;
+                            for (int i = 1; i < frame.length; i++)
+                                frame[i] = eval(app.actualParams.get(i - 1), env);
+                            // the body runs in a nested evaluation, to store its result, and is never compiled; a call
+                            // in tail position is not memoized, so that it keeps running in constant stack
+                            if (rec.memoized && !tail) {
+                                Expression result = memo.get(frame);
+                                if (result == null) {
+                                    Frame fenv = new Frame(rec.fenv, frame);
+                                    result = profiler == null ? eval(rec.body, fenv)
+                                            : profiled(rec.name.value, rec.body, fenv);
+                                    memo.put(frame, result);
+                                }
+                                return result;
+                            }
+                            if (profiler != null) {
+                                if (!framed)
+                                    return profiled(rec.name.value, rec.body, new Frame(rec.fenv, frame));
+                                profiler.replace(rec.name.value);
+                            } else if (tiered) {
+                                Expression result = compiled(rec, frame);
+                                if (result != null)
+                                    return result;
+                            }
+                            env = new Frame(rec.fenv, frame);
+                            e = rec.body;
+                            tail = true;
+                            continue;
                         }
-                        return _ret;
+                        default -> throw new TypeMismatchException("not a functional value passed");
                     }
-                    case "fold" -> {
-                        Expression firstAcc = eval(lop.arg2, env);
-                        Expression newAcc = null;
-                        for (Expression elem : oplis.lis) {
-                            FunctionalApplication app = new FunctionalApplication();
-                            app.actualParams = new ArrayList<>();
-                            app.actualParams.add(elem);
-                            if (newAcc == null)
-                                app.actualParams.add(firstAcc);
-                            else
-                                app.actualParams.add(newAcc);
-                            app.iden = lop.arg1;
-                            newAcc = eval(app, env);
-                            typecheck(newAcc, firstAcc);
+                }
+                case ListOperation lop -> {
+                    Expression list = eval(lop.list, env);
+                    if (!lop.typed)
+                        typecheck(list, Lis.class);
+                    Lis oplis = (Lis) list;
+                    if (profiler != null)
+                        profiler.enter(LIST_OPERATIONS[lop.op.code.ordinal()]);
+                    try {
+                        switch (lop.op.code) {
+                            case CONS -> {
+                                return Operations.cons(eval(lop.arg2, env), oplis);
+                            }
+                            case HD -> {
+                                return Operations.hd(oplis);
+                            }
+                            case TL -> {
+                                return Operations.tl(oplis);
+                            }
+                            case IS_EMPTY -> {
+                                return Operations.isEmpty(oplis);
+                            }
+                            case LENGTH -> {
+                                return Operations.length(oplis);
+                            }
+                            case APPEND -> {
+                                return Operations.append(oplis, eval(lop.arg2, env));
+                            }
+                            // the function is evaluated and checked once, and only when there are elements to apply it
+                            // to
+                            case MAP -> {
+                                List<Expression> newList = new ArrayList<>(oplis.size());
+                                if (oplis.isEmpty())
+                                    return Lis.of(newList, null);
+                                Expression fun = function(lop.arg2, env, 1);
+                                if (parallel(oplis, fun))
+                                    return Lis.of(Arrays.asList(inParallel(oplis, fun, false)), null);
+                                int[] values = oplis.ints();
+                                CompiledFunction code = values == null ? null : intCode(fun, 1, values.length);
+                                if (code != null) {
+                                    int[] arg = new int[1];
+                                    for (int i = 0; i < values.length; i++) {
+                                        arg[0] = values[i];
+                                        values[i] = code.invoke(arg);
+                                    }
+                                    return Lis.of(values, values.length, code.returnsBool());
+                                }
+                                for (Expression elem : oplis)
+                                    newList.add(call(fun, new Expression[] { elem }));
+                                return Lis.of(newList, null);
+                            }
+                            case FILTER -> {
+                                List<Expression> newList = new ArrayList<>();
+                                if (oplis.isEmpty())
+                                    return Lis.of(newList, null);
+                                Expression fun = function(lop.arg2, env, 1);
+                                if (parallel(oplis, fun)) {
+                                    Expression[] results = inParallel(oplis, fun, !lop.typed);
+                                    int i = 0;
+                                    for (Expression elem : oplis)
+                                        if (((Bool) results[i++]).value == true)
+                                            newList.add(elem);
+                                    return Lis.of(newList, null);
+                                }
+                                int[] values = oplis.ints();
+                                CompiledFunction code = values == null ? null : intCode(fun, 1, values.length);
+                                if (code != null && code.returnsBool()) {
+                                    int[] arg = new int[1];
+                                    int kept = 0;
+                                    for (int value : values) {
+                                        arg[0] = value;
+                                        if (code.invoke(arg) != 0)
+                                            values[kept++] = value;
+                                    }
+                                    return Lis.of(values, kept, false);
+                                }
+                                for (Expression elem : oplis) {
+                                    Expression result = call(fun, new Expression[] { elem });
+                                    if (!lop.typed)
+                                        typecheck(result, Bool.class);
+                                    if (((Bool) result).value == true)
+                                        newList.add(elem);
+                                }
+                                return Lis.of(newList, null);
+                            }
+                            // both stop at the first element that decides the result
+                            case EXISTS -> {
+                                if (oplis.isEmpty())
+                                    return Bool.FALSE;
+                                Expression fun = function(lop.arg2, env, 1);
+                                if (parallel(oplis, fun))
+                                    return Bool.of(find(oplis, fun, true, !lop.typed));
+                                for (Expression elem : oplis) {
+                                    Expression result = call(fun, new Expression[] { elem });
+                                    if (!lop.typed)
+                                        typecheck(result, Bool.class);
+                                    if (((Bool) result).value == true)
+                                        return Bool.TRUE;
+                                }
+                                return Bool.FALSE;
+                            }
+                            case FOR_ALL -> {
+                                if (oplis.isEmpty())
+                                    return Bool.TRUE;
+                                Expression fun = function(lop.arg2, env, 1);
+                                if (parallel(oplis, fun))
+                                    return Bool.of(!find(oplis, fun, false, !lop.typed));
+                                for (Expression elem : oplis) {
+                                    Expression result = call(fun, new Expression[] { elem });
+                                    if (!lop.typed)
+                                        typecheck(result, Bool.class);
+                                    if (((Bool) result).value == false)
+                                        return Bool.FALSE;
+                                }
+                                return Bool.TRUE;
+                            }
+                            case FOLD -> {
+                                Expression firstAcc = eval(lop.arg2, env);
+                                // like the other evaluators, folding an empty list gives no value
+                                if (oplis.isEmpty())
+                                    return null;
+                                Expression fun = function(lop.arg1, env, 2);
+                                if (profiler == null && Parallel.worth(oplis)) {
+                                    // an associative operator can combine halves of the list independently
+                                    Symbol op = Parallel.operator(fun);
+                                    Expression result = op == null ? null : reduce(op, oplis, firstAcc);
+                                    if (result != null)
+                                        return result;
+                                }
+                                int[] values = firstAcc instanceof Int ? oplis.ints() : null;
+                                CompiledFunction code = values == null ? null : intCode(fun, 2, values.length);
+                                if (code != null && !code.returnsBool()) {
+                                    int[] args = { 0, ((Int) firstAcc).value };
+                                    for (int value : values) {
+                                        args[0] = value;
+                                        args[1] = code.invoke(args);
+                                    }
+                                    return Int.of(args[1]);
+                                }
+                                Expression newAcc = null;
+                                for (Expression elem : oplis) {
+                                    newAcc = call(fun, new Expression[] { elem, newAcc == null ? firstAcc : newAcc });
+                                    if (!lop.typed)
+                                        typecheck(newAcc, firstAcc);
+                                }
+                                return newAcc;
+                            }
+                            case REV -> {
+                                return Operations.rev(oplis);
+                            }
+                            default -> throw new UnknownCommandException(
+                                    "unknown list operation '" + lop.op.value + "'");
                         }
-                        return newAcc;
-                    }
-                    case "rev" -> {
-                        for (Expression elem : oplis.lis)
-                            newList.lis.addFirst(elem);
-                        return newList;
+                    } finally {
+                        if (profiler != null)
+                            profiler.exit();
                     }
-                    default -> throw new UnknownCommandException("unknown list operation '" + lop.op.value + "'");
                 }
+                case SeqOperation sop -> {
+                    List<Expression> args = new ArrayList<>(sop.args.size());
+                    for (Expression arg : sop.args)
+                        args.add(eval(arg, env));
+                    return Sequences.evaluate(sop.op.code, args, this::apply);
+                }
+                default -> throw new UnknownCommandException(null);
+            }
+        }
+    }
+
+    // applies a functional value to arguments already evaluated
+    private Expression apply(Expression function, Expression... args)
+            throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+            WrongSyntaxException {
+        check(function, args.length);
+        return call(function, args);
+    }
+
+    // the function of a higher order list operation, checked once to take 'arity' arguments
+    private Expression function(Expression e, Frame env, int arity)
+            throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+            WrongSyntaxException {
+        Expression function = eval(e, env);
+        check(function, arity);
+        return function;
+    }
+
+    private static void check(Expression function, int arity) throws TypeMismatchException, WrongSyntaxException {
+        int params = switch (function) {
+            case Closure clo -> clo.params.size();
+            case RecursiveClosure rec -> rec.params.size();
+            default -> throw new TypeMismatchException("not a functional value passed");
+        };
+        if (params != arity)
+            throw new WrongSyntaxException("functional application parameters do not match the function signature");
+    }
+
+    // calls a function already checked to take as many arguments as given; a closure takes 'args' as its frame
+    private Expression call(Expression function, Expression[] args)
+            throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+            WrongSyntaxException {
+        if (function instanceof Closure clo) {
+            if (profiler != null)
+                return profiled(name(clo), clo.body, new Frame(clo.fenv, args));
+            if (tiered) {
+                Expression result = compiled(clo, args);
+                if (result != null)
+                    return result;
+            }
+            return eval(clo.body, new Frame(clo.fenv, args));
+        }
+        RecursiveClosure rec = (RecursiveClosure) function;
+        Expression[] frame = new Expression[args.length + 1];
+        frame[0] = rec;
+        System.arraycopy(args, 0, frame, 1, args.length);
+        if (profiler != null)
+            return profiled(rec.name.value, rec.body, new Frame(rec.fenv, frame));
+        if (tiered) {
+            Expression result = compiled(rec, frame);
+            if (result != null)
+                return result;
+        }
+        return eval(rec.body, new Frame(rec.fenv, frame));
+    }
+
+    // the body of a function evaluated in a frame of the profile named after it
+    private Expression profiled(String name, Expression body, Frame env)
+            throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+            WrongSyntaxException {
+        profiler.enter(name);
+        try {
+            return eval(body, env, true);
+        } finally {
+            profiler.exit();
+        }
+    }
+
+    private static String name(Closure clo) {
+        return clo.name != null ? clo.name : "<fun>";
+    }
+
+    // whether the function of a map, filter, exists or forAll can be applied to the elements on several threads;
+    // the profile only follows the thread of the program, so it keeps them on it
+    private boolean parallel(Lis oplis, Expression function) {
+        return profiler == null && Parallel.worth(oplis) && Effects.pure(function);
+    }
+
+    // the function applied to every element, in list order, with the results checked to be booleans if required
+    private Expression[] inParallel(Lis oplis, Expression function, boolean predicate)
+            throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+            WrongSyntaxException {
+        try {
+            return Parallel.map(oplis, elem -> {
+                Expression result = call(function, new Expression[] { elem });
+                if (predicate)
+                    typecheck(result, Bool.class);
+                return result;
+            });
+        } catch (ZeroDividerException | UnknownCommandException | TypeMismatchException | NoBindingException
+                | WrongSyntaxException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // whether the predicate gives 'wanted' for some element, with the results checked to be booleans if required
+    private boolean find(Lis oplis, Expression function, boolean wanted, boolean checked)
+            throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+            WrongSyntaxException {
+        try {
+            return Parallel.find(oplis, elem -> {
+                Expression result = call(function, new Expression[] { elem });
+                if (checked)
+                    typecheck(result, Bool.class);
+                return Bool.of(((Bool) result).value == wanted);
+            }) >= 0;
+        } catch (ZeroDividerException | UnknownCommandException | TypeMismatchException | NoBindingException
+                | WrongSyntaxException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Expression reduce(Symbol op, Lis oplis, Expression firstAcc)
+            throws ZeroDividerException, UnknownCommandException, TypeMismatchException {
+        try {
+            return Parallel.reduce(op, oplis, firstAcc);
+        } catch (ZeroDividerException | UnknownCommandException | TypeMismatchException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // counts a call and runs the compiled code of the function on 'frame', compiling it on the call that makes it
+    // hot; null when the function has no code or the arguments are not of the types it was compiled for, and the
+    // call is to be interpreted. The code is read once, so that it stays the same while another thread drops it.
+    private static Expression compiled(Closure clo, Expression[] frame) throws ZeroDividerException {
+        if (clo.calls <= TIER_UP_CALLS && (int) CLOSURE_CALLS.getAndAdd(clo, 1) + 1 == TIER_UP_CALLS)
+            clo.code = FunctionCompiler.compile(clo);
+        CompiledFunction code = clo.code;
+        if (code == null)
+            return null;
+        Expression result = code.invoke(frame, 0);
+        if (result == null && code.invalidated())
+            CLOSURE_CODE.compareAndSet(clo, code, null);
+        return result;
+    }
+
+    private static Expression compiled(RecursiveClosure rec, Expression[] frame) throws ZeroDividerException {
+        if (rec.calls <= TIER_UP_CALLS && (int) REC_CALLS.getAndAdd(rec, 1) + 1 == TIER_UP_CALLS)
+            rec.code = FunctionCompiler.compile(rec);
+        CompiledFunction code = rec.code;
+        if (code == null)
+            return null;
+        Expression result = code.invoke(frame, 1);
+        if (result == null && code.invalidated())
+            REC_CODE.compareAndSet(rec, code, null);
+        return result;
+    }
+
+    // The compiled code of 'fun' when it is about to be called 'calls' times, with 'arity' integers each, on the
+    // elements of an integer list, so that they are never boxed; the function is compiled now when those calls
+    // make it hot. Null when the calls are to be interpreted.
+    private CompiledFunction intCode(Expression fun, int arity, int calls) {
+        if (!tiered || profiler != null)
+            return null;
+        CompiledFunction code;
+        switch (fun) {
+            case Closure clo -> {
+                if (clo.code == null && clo.calls < TIER_UP_CALLS && clo.calls + calls >= TIER_UP_CALLS) {
+                    int before = (int) CLOSURE_CALLS.getAndAdd(clo, calls);
+                    if (before < TIER_UP_CALLS && before + calls >= TIER_UP_CALLS)
+                        clo.code = FunctionCompiler.compile(clo);
+                }
+                code = clo.code;
+            }
+            case RecursiveClosure rec when !rec.memoized -> {
+                if (rec.code == null && rec.calls < TIER_UP_CALLS && rec.calls + calls >= TIER_UP_CALLS) {
+                    int before = (int) REC_CALLS.getAndAdd(rec, calls);
+                    if (before < TIER_UP_CALLS && before + calls >= TIER_UP_CALLS)
+                        rec.code = FunctionCompiler.compile(rec);
+                }
+                code = rec.code;
+            }
+            default -> {
+                return null;
             }
-            default -> throw new UnknownCommandException(null);
+        }
+        return code != null && code.takesInts(arity) ? code : null;
+    }
+
+    private static VarHandle handle(Class<?> type, String field, Class<?> fieldType) {
+        try {
+            return MethodHandles.lookup().findVarHandle(type, field, fieldType);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
         }
     }
 
     private void typecheck(Expression actualType, Expression expectedType) throws TypeMismatchException {
-        if (!actualType.getClass().equals(expectedType.getClass()))
-            throw new TypeMismatchException("expected type '" + expectedType.getClass().getSimpleName()
-                    + "' but found type '" + actualType.getClass().getSimpleName() + "'");
+        Operations.typecheck(actualType, expectedType);
     }
 
-    private List<Binding> bind(Binding bin, List<Binding> oldEnv) {
-        List<Binding> newEnv = clone(oldEnv);
-        newEnv.add(bin);
-        return newEnv;
+    private void typecheck(Expression actualType, Class<? extends Expression> expectedType)
+            throws TypeMismatchException {
+        Operations.typecheck(actualType, expectedType);
     }
 
-    private Expression lookup(Identifier iden, List<Binding> env) throws NoBindingException {
-        for (int i = env.size() - 1; i >= 0; i--)
-            if (env.get(i).var.value.contentEquals(iden.value))
-                return env.get(i).value;
-        throw new NoBindingException("variable '" + iden.value + "' is not bound in scope");
+    // stores a top-level declaration in the global frame, which is always the outermost one
+    private void define(Identifier var, Expression value, Frame env) {
+        if (var.slot < 0)
+            return;
+        while (env.parent != null)
+            env = env.parent;
+        env.set(var.slot, value);
     }
 
-    private List<Binding> clone(List<Binding> oldList) {
-        List<Binding> newList = new ArrayList<>();
-        for (Binding bin : oldList)
-            newList.add(bin);
-        return newList;
+    private Expression lookup(Identifier iden, Frame env) throws NoBindingException {
+        if (iden.depth < 0)
+            throw new NoBindingException("variable '" + iden.value + "' is not bound in scope");
+        return env.get(iden.depth, iden.slot);
     }
 
     public String printValue(Expression e) {
@@ -418,9 +617,12 @@ public class Interpreter {
             case RecursiveClosure _ -> {
                 return "<rec>";
             }
+            case Seq _ -> {
+                return "<seq>";
+            }
             case Lis l -> {
                 String out = "[";
-                for (Expression element : l.lis)
+                for (Expression element : l)
                     out = out + printValue(element) + ",";
                 int index;
                 if ((index = out.lastIndexOf(",")) != -1)
@@ -1,105 +1,262 @@
 import exceptions.IllegalTokenException;
-import java.util.LinkedList;
-import java.util.Queue;
 import token.*;
 
+// Splits a program into tokens in a single pass over its characters. Tokens need no spacing in between: '(f x)'
+// and '( f x )' give the same tokens, and an operator ends where the longest one it can be ends, so '==' is one
+// token and '=' followed by '(' two. A '-' directly followed by a digit starts a negative literal, unless it comes
+// right after an operand as in '(n-1)'. Every token records the line and column it starts at, and integer literals
+// are decoded as they are read.
 public class Lexer {
-    private String program;
-    private final Queue<Token> tokens = new LinkedList<>();
+    private CharSequence program;
+    private final Tokens tokens = new Tokens();
+    // where the input starts, then the line being read
+    private int line = 1, column = 1;
 
-    public void setInput(String input) {
+    public void setInput(CharSequence input) {
+        setInput(input, 1, 1);
+    }
+
+    // the input is part of a program and starts at the given position, as a block that follows others; the
+    // tokens of the previous input are dropped
+    public void setInput(CharSequence input, int line, int column) {
         program = input;
+        tokens.reset(input);
+        this.line = line;
+        this.column = column;
     }
 
-    public Queue<Token> getResult() {
+    public Tokens getResult() {
         return tokens;
     }
 
     public void tokenize() throws IllegalTokenException {
-        String[] words = program.split("\\s+|,");
-        for (String word : words)
-            matchToken(word);
-    }
-
-    private void matchToken(String word) throws IllegalTokenException {
-        if (word.isBlank()) {
-        } else if (word.matches("-[0-9]+|[0-9]+"))
-            tokens.add(new Token(TokenType.INT, word));
-        else if (word.matches("true|false"))
-            tokens.add(new Token(TokenType.BOOL, word));
-        else if (word.contentEquals("let"))
-            tokens.add(new Token(TokenType.LET, word));
-        else if (word.contentEquals("rec"))
-            tokens.add(new Token(TokenType.REC, word));
-        else if (word.contentEquals("="))
-            tokens.add(new Token(TokenType.EQ, word));
-        else if (word.contentEquals("in"))
-            tokens.add(new Token(TokenType.IN, word));
-        else if (word.contentEquals("if"))
-            tokens.add(new Token(TokenType.IF, word));
-        else if (word.contentEquals("then"))
-            tokens.add(new Token(TokenType.THEN, word));
-        else if (word.contentEquals("else"))
-            tokens.add(new Token(TokenType.ELSE, word));
-        else if (word.contentEquals("function"))
-            tokens.add(new Token(TokenType.FUN, word));
-        else if (word.contentEquals("->"))
-            tokens.add(new Token(TokenType.ARROW, word));
-        else if (word.contentEquals(";;"))
-            tokens.add(new Token(TokenType.END_BLOCK, word));
-        else if (word.matches("\\(+"))
-            for (int i = 0; i < word.length(); i++)
-                tokens.add(new Token(TokenType.LPAR, word));
-        else if (word.matches("\\)+"))
-            for (int i = 0; i < word.length(); i++)
-                tokens.add(new Token(TokenType.RPAR, word));
-        else if (word.matches("\\[+"))
-            for (int i = 0; i < word.length(); i++)
-                tokens.add(new Token(TokenType.LIST_S, word));
-        else if (word.matches("\\]+"))
-            for (int i = 0; i < word.length(); i++)
-                tokens.add(new Token(TokenType.LIST_E, word));
-        else if (word.matches("List.[a-z]\\w*"))
-            tokens.add(new Token(TokenType.LIST_OP, word));
-        else if (word.contentEquals("!"))
-            tokens.add(new Token(TokenType.NOT, word));
-        else if (word.matches("![\\w\\(\\)\\.]+")) {
-            matchToken(word.substring(0, 1));
-            matchToken(word.substring(1, word.length()));
-        } else if (word.matches("\\(+[\\w\\[\\]\\.]+")) {
-            int index = word.lastIndexOf("(");
-            matchToken(word.substring(0, index + 1));
-            matchToken(word.substring(index + 1, word.length()));
-        } else if (word.matches("[\\w\\[\\]\\.]+\\)+")) {
-            int index = word.indexOf(")");
-            matchToken(word.substring(0, index));
-            matchToken(word.substring(index, word.length()));
-        } else if (word.matches("\\(+[\\w\\[\\]\\.]+\\)+")) {
-            int index_1 = word.lastIndexOf("(");
-            matchToken(word.substring(0, index_1 + 1));
-            int index_2 = word.indexOf(")");
-            matchToken(word.substring(index_1 + 1, index_2));
-            matchToken(word.substring(index_2, word.length()));
-        } else if (word.matches("\\[+[\\w\\(\\)\\.]+")) {
-            int index = word.lastIndexOf("[");
-            matchToken(word.substring(0, index + 1));
-            matchToken(word.substring(index + 1, word.length()));
-        } else if (word.matches("[\\w\\(\\)\\.]+\\]+")) {
-            int index = word.indexOf("]");
-            matchToken(word.substring(0, index));
-            matchToken(word.substring(index, word.length()));
-        } else if (word.matches("\\[+[\\w\\(\\)\\.]*\\]+")) {
-            int index_1 = word.lastIndexOf("[");
-            matchToken(word.substring(0, index_1 + 1));
-            int index_2 = word.indexOf("]");
-            matchToken(word.substring(index_1 + 1, index_2));
-            matchToken(word.substring(index_2, word.length()));
-        } else if (word.matches("\\+|-|\\*|/|&|\\||>|<|>=|<=|%|\\^|==|!="))
-            tokens.add(new Token(TokenType.SYMB, word));
-        else if (word.matches("[a-z]\\w*"))
-            tokens.add(new Token(TokenType.IDEN, word));
-        else
-            throw new IllegalTokenException(
-                    "illegal token '" + word + "' detected. Spacing in between might resolve the issue.");
+        CharSequence in = program;
+        int length = in.length(), pos = 0;
+        // columns count from the start of the line, which for the first one is before the input
+        int lineStart = 1 - column;
+        while (pos < length) {
+            char c = in.charAt(pos);
+            if (c == '\n') {
+                line++;
+                lineStart = ++pos;
+                continue;
+            }
+            if (c == ' ' || c == '\t' || c == '\r' || c == ',' || c == '\f' || c == '\u000B') {
+                pos++;
+                continue;
+            }
+            int start = pos, col = pos - lineStart + 1;
+            char next = pos + 1 < length ? in.charAt(pos + 1) : '\0';
+            if (isDigit(c) || c == '-' && isDigit(next) && (start == 0 || !endsOperand(in.charAt(start - 1)))) {
+                pos = integer(in, start, length, col);
+            } else if (isLetter(c)) {
+                pos = word(in, pos + 1, length);
+                // List.<op> and Seq.<op> are single tokens
+                if (pos + 1 < length && in.charAt(pos) == '.' && isLower(in.charAt(pos + 1))
+                        && (is(in, start, pos, "List") || is(in, start, pos, "Seq"))) {
+                    TokenType type = in.charAt(start) == 'L' ? TokenType.LIST_OP : TokenType.SEQ_OP;
+                    int op = pos + 1;
+                    pos = word(in, pos + 2, length);
+                    add(type, op, pos, 0, col);
+                } else if (!keyword(in, start, pos, col)) {
+                    if (!isLower(c))
+                        throw illegal(in, start, length, col);
+                    add(TokenType.IDEN, start, pos, 0, col);
+                }
+            } else {
+                pos += symbol(c, next, in, start, length, col);
+            }
+        }
+    }
+
+    // adds the token for an operator or delimiter starting with 'c' and returns its length
+    private int symbol(char c, char next, CharSequence in, int start, int length, int col)
+            throws IllegalTokenException {
+        switch (c) {
+            case '(' -> add(TokenType.LPAR, start, start + 1, 0, col);
+            case ')' -> add(TokenType.RPAR, start, start + 1, 0, col);
+            case '[' -> add(TokenType.LIST_S, start, start + 1, 0, col);
+            case ']' -> add(TokenType.LIST_E, start, start + 1, 0, col);
+            case '+' -> operator(Tokens.PLUS, start, col);
+            case '*' -> operator(Tokens.TIMES, start, col);
+            case '/' -> operator(Tokens.DIVIDE, start, col);
+            case '&' -> operator(Tokens.AND, start, col);
+            case '|' -> operator(Tokens.OR, start, col);
+            case '%' -> operator(Tokens.MOD, start, col);
+            case '^' -> operator(Tokens.XOR, start, col);
+            case ';' -> {
+                if (next != ';')
+                    throw illegal(in, start, length, col);
+                add(TokenType.END_BLOCK, start, start + 2, 0, col);
+                return 2;
+            }
+            case '-' -> {
+                if (next != '>') {
+                    operator(Tokens.MINUS, start, col);
+                    return 1;
+                }
+                add(TokenType.ARROW, start, start + 2, 0, col);
+                return 2;
+            }
+            case '=' -> {
+                if (next != '=') {
+                    add(TokenType.EQ, start, start + 1, 0, col);
+                    return 1;
+                }
+                operator(Tokens.EQUAL, start, col);
+                return 2;
+            }
+            case '!' -> {
+                if (next != '=') {
+                    add(TokenType.NOT, start, start + 1, 0, col);
+                    return 1;
+                }
+                operator(Tokens.NOT_EQUAL, start, col);
+                return 2;
+            }
+            case '>' -> {
+                if (next != '=') {
+                    operator(Tokens.GREATER, start, col);
+                    return 1;
+                }
+                operator(Tokens.GREATER_EQ, start, col);
+                return 2;
+            }
+            case '<' -> {
+                if (next != '=') {
+                    operator(Tokens.LESS, start, col);
+                    return 1;
+                }
+                operator(Tokens.LESS_EQ, start, col);
+                return 2;
+            }
+            default -> throw illegal(in, start, length, col);
+        }
+        return 1;
+    }
+
+    // adds the token of a keyword between 'start' and 'end', or returns false when the word is none
+    private boolean keyword(CharSequence in, int start, int end, int col) {
+        switch (in.charAt(start)) {
+            case 'l' -> {
+                if (is(in, start, end, "let"))
+                    return add(TokenType.LET, start, end, 0, col);
+            }
+            case 'r' -> {
+                if (is(in, start, end, "rec"))
+                    return add(TokenType.REC, start, end, 0, col);
+            }
+            case 'i' -> {
+                if (is(in, start, end, "in"))
+                    return add(TokenType.IN, start, end, 0, col);
+                if (is(in, start, end, "if"))
+                    return add(TokenType.IF, start, end, 0, col);
+            }
+            case 't' -> {
+                if (is(in, start, end, "then"))
+                    return add(TokenType.THEN, start, end, 0, col);
+                if (is(in, start, end, "true"))
+                    return add(TokenType.BOOL, start, end, 1, col);
+            }
+            case 'e' -> {
+                if (is(in, start, end, "else"))
+                    return add(TokenType.ELSE, start, end, 0, col);
+            }
+            case 'f' -> {
+                if (is(in, start, end, "function"))
+                    return add(TokenType.FUN, start, end, 0, col);
+                if (is(in, start, end, "false"))
+                    return add(TokenType.BOOL, start, end, 0, col);
+            }
+            default -> {
+            }
+        }
+        return false;
+    }
+
+    private boolean add(TokenType type, int start, int end, int value, int col) {
+        tokens.add(type, start, end, value, line, col);
+        return true;
+    }
+
+    // adds the operator of index 'symbol' in Tokens.SYMBOLS, which 'symbol' picked from its characters
+    private void operator(int symbol, int start, int col) {
+        tokens.add(TokenType.SYMB, start, start + Tokens.SYMBOLS[symbol].length(), symbol, line, col);
+    }
+
+    // adds the literal starting at 'start', with its value, and returns where it ends
+    private int integer(CharSequence in, int start, int length, int col) throws IllegalTokenException {
+        boolean negative = in.charAt(start) == '-';
+        int pos = negative ? start + 1 : start;
+        // accumulated as a negative number, which reaches one further than a positive one
+        long value = 0;
+        for (; pos < length && isDigit(in.charAt(pos)); pos++) {
+            value = value * 10 - (in.charAt(pos) - '0');
+            if (value < Integer.MIN_VALUE)
+                throw new IllegalTokenException("integer literal '" + in.subSequence(start, digits(in, pos, length))
+                        + "' out of range at line " + line + ", column " + col);
+        }
+        if (pos < length && isWordPart(in.charAt(pos)))
+            throw illegal(in, start, length, col);
+        if (!negative && value == Integer.MIN_VALUE)
+            throw new IllegalTokenException("integer literal '" + in.subSequence(start, pos)
+                    + "' out of range at line " + line + ", column " + col);
+        add(TokenType.INT, start, pos, (int) (negative ? value : -value), col);
+        return pos;
+    }
+
+    // the whole word the illegal character is part of, up to the next separator
+    private IllegalTokenException illegal(CharSequence in, int start, int length, int col) {
+        int end = start + 1;
+        while (end < length && !isSeparator(in.charAt(end)))
+            end++;
+        return new IllegalTokenException("illegal token '" + in.subSequence(start, end) + "' at line " + line
+                + ", column " + col);
+    }
+
+    private static boolean is(CharSequence in, int start, int end, String word) {
+        if (end - start != word.length())
+            return false;
+        for (int i = 0; i < word.length(); i++)
+            if (in.charAt(start + i) != word.charAt(i))
+                return false;
+        return true;
+    }
+
+    private static int digits(CharSequence in, int pos, int length) {
+        while (pos < length && isDigit(in.charAt(pos)))
+            pos++;
+        return pos;
+    }
+
+    private static int word(CharSequence in, int pos, int length) {
+        while (pos < length && isWordPart(in.charAt(pos)))
+            pos++;
+        return pos;
+    }
+
+    // whether an expression can end with 'c', so that a '-' after it is an operator
+    private static boolean endsOperand(char c) {
+        return isWordPart(c) || c == ')' || c == ']';
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '\n' || c == '\t' || c == '\r' || c == ',' || c == '\f' || c == '\u000B';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLower(char c) {
+        return c >= 'a' && c <= 'z';
+    }
+
+    private static boolean isLetter(char c) {
+        return isLower(c) || c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isWordPart(char c) {
+        return isLetter(c) || isDigit(c) || c == '_';
     }
 }
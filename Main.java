@@ -1,48 +1,139 @@
-import constructs.Binding;
 import constructs.Expression;
+import constructs.Frame;
 import exceptions.*;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.List;
+import nodes.NodeCompiler;
+import runtime.Memo;
+import runtime.Profiler;
+import vm.VM;
+import vm.VMCompiler;
 
 public class Main {
+    // the file --profile writes the collapsed stacks to, in the working directory
+    private static final String PROFILE = "profile.collapsed";
+
     public static void main(String[] args)
             throws IllegalTokenException, WrongSyntaxException, ZeroDividerException,
-            UnknownCommandException, TypeMismatchException, NoBindingException, IOException {
-        if (args.length < 1) {
-            System.err.println("\nNo path was provided.\nUsage: java Main <path-to-file>");
+            UnknownCommandException, TypeMismatchException, NoBindingException, IOException, InterruptedException {
+        String path = null;
+        boolean stackless = false, compiled = false, bytecode = false, jit = true, dynamic = false, memoize = false,
+                profile = false;
+        for (String arg : args) {
+            if (arg.contentEquals("--stackless"))
+                stackless = true;
+            else if (arg.contentEquals("--compiled"))
+                compiled = true;
+            else if (arg.contentEquals("--vm"))
+                bytecode = true;
+            else if (arg.contentEquals("--no-jit"))
+                jit = false;
+            else if (arg.contentEquals("--dynamic"))
+                dynamic = true;
+            else if (arg.contentEquals("--memo"))
+                memoize = true;
+            else if (arg.contentEquals("--profile"))
+                profile = true;
+            else
+                path = arg;
+        }
+        if (path == null) {
+            System.err.println("\nNo path was provided.\nUsage: java Main [--stackless | --compiled | --vm | --no-jit] [--dynamic] [--memo] [--profile] <path-to-file | ->");
+            return;
+        }
+        // each of these picks the engine that runs the program, or turns the JIT of the default one off
+        if ((stackless ? 1 : 0) + (compiled ? 1 : 0) + (bytecode ? 1 : 0) + (jit ? 0 : 1) > 1) {
+            System.err.println("\n--stackless, --compiled, --vm and --no-jit cannot be used together");
+            return;
+        }
+        if (memoize && (compiled || bytecode)) {
+            System.err.println("\n--memo works with the interpreters only, not with --compiled or --vm");
             return;
         }
-        if (!args[0].endsWith(".ml")) {
+        if (profile && (stackless || compiled || bytecode)) {
+            System.err.println("\n--profile works with the default interpreter only");
+            return;
+        }
+        if (!path.contentEquals("-") && !path.endsWith(".ml")) {
             System.err.println("\nFile is not a .ml file");
             return;
         }
 
-        String program = Files.readString(Paths.get(args[0]));
-        String[] blocks = program.split("(?<=\\s+;;)");
-        List<Binding> env = new ArrayList<>();
-
-        Lexer lexer = new Lexer();
-        Parser parser = new Parser();
-        Interpreter interpreter = new Interpreter();
+        // '-' reads the program from the standard input, so that it can be piped in
+        Reader input = path.contentEquals("-") ? new InputStreamReader(System.in)
+                : Files.newBufferedReader(Paths.get(path));
+        FrontEnd frontEnd = new FrontEnd(new BlockReader(input));
+        Frame env = new Frame(null, new Expression[16]);
 
-        for (String block : blocks) {
-            System.out.println(block + "\n");
+        Resolver resolver = new Resolver();
+        TypeInference typer = new TypeInference();
+        Optimizer optimizer = new Optimizer();
+        Fusion fusion = new Fusion();
+        Memo memo = memoize ? new Memo(Memo.CAPACITY) : null;
+        Profiler profiler = profile ? new Profiler() : null;
+        Interpreter interpreter = new Interpreter(jit, memo, profiler);
+        StacklessInterpreter stacklessInterpreter = new StacklessInterpreter(memo);
+        NodeCompiler compiler = new NodeCompiler();
+        VMCompiler vmCompiler = new VMCompiler();
+        VM vm = new VM();
 
-            lexer.setInput(block);
-            lexer.tokenize();
+        int blocks = 0;
+        try {
+            // blocks are read and parsed ahead on other threads, and run here in order as soon as they are ready
+            for (FrontEnd.Block block = frontEnd.next(); block != null; block = frontEnd.next()) {
+                System.out.println(block.text + "\n");
 
-            parser.setInput(lexer.getResult());
-            parser.parse();
+                Expression parsed = block.parse();
+                resolver.resolve(parsed);
+                // a type error stops the program before the block runs, unless types are left to be checked as it
+                // runs
+                if (!dynamic)
+                    typer.infer(parsed);
+                Expression e = fusion.fuse(optimizer.optimize(parsed, !dynamic));
 
-            Expression result = interpreter.eval(parser.getResult(), env);
+                Expression result;
+                if (stackless)
+                    result = stacklessInterpreter.eval(e, env);
+                else if (compiled)
+                    result = compiler.compile(e).execute(env);
+                else if (bytecode)
+                    result = vm.execute(vmCompiler.compile(e), env);
+                else if (profiler != null) {
+                    profiler.enter(blockName(++blocks, block.text));
+                    try {
+                        result = interpreter.eval(e, env);
+                    } finally {
+                        profiler.exit();
+                    }
+                } else
+                    result = interpreter.eval(e, env);
 
-            if (result != null)
-                System.out.println("-: " + result.getClass().getSimpleName() + " = " + interpreter.printValue(result));
-            else
-                System.out.println("-: null");
+                if (result != null)
+                    System.out.println("-: " + result.getClass().getSimpleName() + " = "
+                            + interpreter.printValue(result));
+                else
+                    System.out.println("-: null");
+            }
+        } finally {
+            // written when the program stops on an error too, with the frames up to it
+            if (profiler != null) {
+                profiler.writeCollapsed(Path.of(PROFILE));
+                System.err.print("\n" + profiler.report() + "(collapsed stacks for flame graphs in " + PROFILE
+                        + ")\n");
+            }
         }
+        if (memo != null)
+            System.err.println(memo);
+    }
+
+    // the frame of a block in the profile: its number and the start of its first line, without the ';' that
+    // separates frames in collapsed stacks
+    private static String blockName(int number, String text) {
+        String line = text.strip().lines().findFirst().orElse("").replace(";", "").strip();
+        return "block " + number + ": " + (line.length() > 40 ? line.substring(0, 40) + "..." : line);
     }
 }
@@ -0,0 +1,265 @@
+import constructs.*;
+import exceptions.TypeMismatchException;
+import exceptions.UnknownCommandException;
+import exceptions.ZeroDividerException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import runtime.Operations;
+import values.*;
+
+// Simplifies a resolved block before it runs. Operations on integer and boolean literals are computed, an if with
+// a literal guard is replaced by the branch it takes, a let binding a literal is removed and its variable
+// replaced by the literal (as are globals declared by a top-level let of a literal, in later blocks), and list
+// operations on lists of literals are computed where the result is a literal too. Operations that fail, like a
+// division by zero, are kept to fail when the program runs. When the block has passed type inference the
+// operands are known to have the right types, and (x * 1), (x + 0), (x & true) and the like become x, while
+// lists of literals are also taken apart and put together. Calls of small functions are then inlined (Inliner),
+// and the block simplified again with the arguments in place.
+public class Optimizer {
+    // the literals bound by top-level declarations, by global slot, or null
+    private final List<Expression> globals = new ArrayList<>();
+    // local frames of the block, innermost first: null for a frame that is kept, or the literal bound by a let
+    // that is removed
+    private final LinkedList<Expression> scopes = new LinkedList<>();
+    private final Inliner inliner;
+    private boolean typed;
+
+    public Optimizer() {
+        inliner = new Inliner();
+    }
+
+    // an optimizer that knows the globals 'shared' knows, and records those declared after on its own
+    public Optimizer(Optimizer shared) {
+        globals.addAll(shared.globals);
+        inliner = new Inliner(shared.inliner);
+    }
+
+    public Expression optimize(Expression e, boolean typed) {
+        scopes.clear();
+        this.typed = typed;
+        Expression result = inliner.inline(visit(e));
+        if (inliner.inlined()) {
+            scopes.clear();
+            result = visit(result);
+        }
+        // the declaration is the whole block, so it is made as soon as the block runs
+        if (result instanceof Let let && let.body == null && ((Identifier) let.var).slot >= 0) {
+            int slot = ((Identifier) let.var).slot;
+            while (globals.size() <= slot)
+                globals.add(null);
+            globals.set(slot, literal(let.value) ? let.value : null);
+        }
+        return result;
+    }
+
+    private Expression visit(Expression e) {
+        switch (e) {
+            case null -> {
+                return null;
+            }
+            case Identifier id -> {
+                return identifier(id);
+            }
+            case AnonymusFunction f -> f.body = inFrame(null, f.body);
+            case ListLiteral l -> l.elements.replaceAll(this::visit);
+            case BinaryOperation bop -> {
+                return binary(bop);
+            }
+            case UnaryOperation uop -> {
+                uop.arg = visit(uop.arg);
+                if (uop.arg instanceof Bool b && uop.op.code == Operator.NOT)
+                    return Bool.of(!b.value);
+                if (typed && uop.arg instanceof UnaryOperation inner)
+                    return inner.arg;
+            }
+            case Ifthenelse ifte -> {
+                ifte.guard = visit(ifte.guard);
+                if (ifte.guard instanceof Bool b)
+                    return visit(b.value ? ifte.then : ifte.els);
+                ifte.then = visit(ifte.then);
+                ifte.els = visit(ifte.els);
+            }
+            case Let let -> {
+                let.value = visit(let.value);
+                if (let.body == null)
+                    return let;
+                if (literal(let.value))
+                    return inFrame(let.value, let.body);
+                let.body = inFrame(null, let.body);
+            }
+            case Letrec letr -> {
+                letr.fbody = inFrame(null, letr.fbody);
+                letr.letbody = inFrame(null, letr.letbody);
+            }
+            case FunctionalApplication app -> {
+                app.iden = visit(app.iden);
+                app.actualParams.replaceAll(this::visit);
+            }
+            case ListOperation lop -> {
+                lop.arg1 = visit(lop.arg1);
+                lop.arg2 = visit(lop.arg2);
+                lop.list = visit(lop.list);
+                return listOperation(lop);
+            }
+            case SeqOperation sop -> sop.args.replaceAll(this::visit);
+            default -> {
+            }
+        }
+        return e;
+    }
+
+    // 'body' with a frame pushed, which holds the literal its let bound when the let is removed
+    private Expression inFrame(Expression literal, Expression body) {
+        if (body == null)
+            return null;
+        scopes.push(literal);
+        Expression result = visit(body);
+        scopes.pop();
+        return result;
+    }
+
+    // the literal the variable is bound to, or the variable with its depth lowered by the frames removed
+    private Expression identifier(Identifier id) {
+        int depth = 0, removed = 0;
+        for (Expression frame : scopes) {
+            if (depth == id.depth)
+                return frame != null ? frame : lower(id, removed);
+            if (frame != null)
+                removed++;
+            depth++;
+        }
+        if (id.depth == depth && id.slot < globals.size() && globals.get(id.slot) != null)
+            return globals.get(id.slot);
+        return lower(id, removed);
+    }
+
+    private static Identifier lower(Identifier id, int removed) {
+        id.depth -= removed;
+        return id;
+    }
+
+    private Expression binary(BinaryOperation bop) {
+        bop.e1 = visit(bop.e1);
+        bop.e2 = visit(bop.e2);
+        if (literal(bop.e1) && literal(bop.e2)) {
+            try {
+                return Operations.binary(bop.op, bop.e1, bop.e2);
+            } catch (ZeroDividerException | UnknownCommandException | TypeMismatchException | ArithmeticException e) {
+                return bop;
+            }
+        }
+        if (!typed)
+            return bop;
+        // operations that give back their other operand
+        switch (bop.op.code) {
+            case ADD -> {
+                if (is(bop.e2, 0))
+                    return bop.e1;
+                if (is(bop.e1, 0))
+                    return bop.e2;
+            }
+            case SUB -> {
+                if (is(bop.e2, 0))
+                    return bop.e1;
+            }
+            case MUL -> {
+                if (is(bop.e2, 1))
+                    return bop.e1;
+                if (is(bop.e1, 1))
+                    return bop.e2;
+            }
+            case DIV -> {
+                if (is(bop.e2, 1))
+                    return bop.e1;
+            }
+            case AND -> {
+                if (bop.e2 == Bool.TRUE)
+                    return bop.e1;
+                if (bop.e1 == Bool.TRUE)
+                    return bop.e2;
+            }
+            case OR -> {
+                if (bop.e2 == Bool.FALSE)
+                    return bop.e1;
+                if (bop.e1 == Bool.FALSE)
+                    return bop.e2;
+            }
+            default -> {
+            }
+        }
+        return bop;
+    }
+
+    private Expression listOperation(ListOperation lop) {
+        if (!(lop.list instanceof ListLiteral l) || !literals(l))
+            return lop;
+        List<Expression> elements = l.elements;
+        switch (lop.op.code) {
+            case IS_EMPTY -> {
+                return Bool.of(elements.isEmpty());
+            }
+            case LENGTH -> {
+                return Int.of(elements.size());
+            }
+            case HD -> {
+                return elements.isEmpty() ? lop : elements.getFirst();
+            }
+            default -> {
+            }
+        }
+        // the lists built at run time may have another element type than a literal, which only matters untyped
+        if (!typed)
+            return lop;
+        switch (lop.op.code) {
+            case TL -> {
+                return elements.isEmpty() ? lop : list(elements.subList(1, elements.size()));
+            }
+            case REV -> {
+                return list(elements.reversed());
+            }
+            case CONS -> {
+                if (!literal(lop.arg2))
+                    return lop;
+                List<Expression> newList = new ArrayList<>(elements.size() + 1);
+                newList.add(lop.arg2);
+                newList.addAll(elements);
+                return list(newList);
+            }
+            // the elements of the second operand come first
+            case APPEND -> {
+                if (!(lop.arg2 instanceof ListLiteral first) || !literals(first))
+                    return lop;
+                List<Expression> newList = new ArrayList<>(first.elements);
+                newList.addAll(elements);
+                return list(newList);
+            }
+            default -> {
+                return lop;
+            }
+        }
+    }
+
+    private static ListLiteral list(List<Expression> elements) {
+        ListLiteral l = new ListLiteral();
+        l.elements.addAll(elements);
+        l.typed = true;
+        return l;
+    }
+
+    private static boolean literal(Expression e) {
+        return e instanceof Int || e instanceof Bool;
+    }
+
+    // a list literal of integers only or booleans only, which cannot fail to build
+    private static boolean literals(ListLiteral l) {
+        for (Expression element : l.elements)
+            if (!literal(element) || element.getClass() != l.elements.getFirst().getClass())
+                return false;
+        return true;
+    }
+
+    private static boolean is(Expression e, int value) {
+        return e instanceof Int i && i.value == value;
+    }
+}
@@ -1,18 +1,24 @@
 import constructs.*;
 import exceptions.WrongSyntaxException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Queue;
 import token.*;
 import values.*;
 
+// Recursive descent over the tokens of a block, read in place through the index of the next one.
 public class Parser {
-    private Queue<Token> tokens;
-    private Token nextToken;
+    // the operator of every entry of Tokens.SYMBOLS
+    private static final Operator[] OPERATORS = Arrays.stream(Tokens.SYMBOLS).map(Operator::of)
+            .toArray(Operator[]::new);
+
+    private Tokens tokens;
+    private int next;
     private Expression result;
 
-    public void setInput(Queue<Token> queue) {
-        tokens = queue;
+    public void setInput(Tokens tokens) {
+        this.tokens = tokens;
+        next = 0;
     }
 
     public Expression getResult() {
@@ -20,22 +26,22 @@ public class Parser {
     }
 
     public void parse() throws WrongSyntaxException {
-        if ((nextToken = tokens.peek()) == null)
+        if (tokens.type(next) == null)
             throw new WrongSyntaxException("no tokens found");
         result = parseExpression();
-        parseToken(new Token(TokenType.END_BLOCK, ";;"));
-        if (!tokens.isEmpty()) {
-            String s = new String();
-            for (Token t : tokens)
-                s = s + t.value + " ";
+        parseToken(TokenType.END_BLOCK);
+        if (next < tokens.size()) {
+            StringBuilder s = new StringBuilder();
+            for (int i = next; i < tokens.size(); i++)
+                s.append(tokens.text(i)).append(' ');
             throw new WrongSyntaxException("unexpected tokens out of scope: " + s);
         }
     }
 
     private Expression parseExpression() throws WrongSyntaxException {
-        nextToken = tokens.peek();
-        if (nextToken != null) {
-            switch (nextToken.type) {
+        TokenType type = tokens.type(next);
+        if (type != null) {
+            switch (type) {
                 case INT -> {
                     return parseInt();
                 }
@@ -60,42 +66,45 @@ public class Parser {
                 case LIST_OP -> {
                     return parseListOperation();
                 }
+                case SEQ_OP -> {
+                    return parseSeqOperation();
+                }
                 case NOT -> {
                     return parseUnaryOperation();
                 }
                 case IDEN -> {
                     return parseIdentifier();
                 }
-                default -> throw new WrongSyntaxException("unexpected token '" + nextToken.value + "'");
+                default -> throw new WrongSyntaxException("unexpected token '" + tokens.text(next) + "'" + at(next));
             }
         } else
             throw new WrongSyntaxException("expected expression but found none");
     }
 
     private Int parseInt() {
-        return new Int(Integer.parseInt(tokens.remove().value));
+        return Int.of(tokens.value(next++));
     }
 
     private Bool parseBool() {
-        return new Bool(Boolean.parseBoolean(tokens.remove().value));
+        return Bool.of(tokens.value(next++) != 0);
     }
 
     private Identifier parseIdentifier() {
-        return new Identifier(tokens.remove().value);
+        return new Identifier(tokens.text(next++));
     }
 
     private Expression parseLet() throws WrongSyntaxException {
-        parseToken(new Token(TokenType.LET, "let"));
-        if (tokens.peek().type == TokenType.REC)
+        parseToken(TokenType.LET);
+        if (tokens.type(next) == TokenType.REC)
             return parseRec();
         Let let = new Let();
         let.var = parseExpression();
-        if (tokens.peek().type != TokenType.EQ)
-            let.params = parseListOfParams(new Token(TokenType.EQ, "="));
-        parseToken(new Token(TokenType.EQ, "="));
+        if (tokens.type(next) != TokenType.EQ)
+            let.params = parseListOfParams(TokenType.EQ);
+        parseToken(TokenType.EQ);
         let.value = parseExpression();
-        if (tokens.peek().type != TokenType.END_BLOCK) {
-            parseToken(new Token(TokenType.IN, "in"));
+        if (tokens.type(next) != TokenType.END_BLOCK) {
+            parseToken(TokenType.IN);
             let.body = parseExpression();
         }
         return let;
@@ -103,13 +112,13 @@ public class Parser {
 
     private Expression parseRec() throws WrongSyntaxException {
         Letrec rec = new Letrec();
-        parseToken(new Token(TokenType.REC, "rec"));
+        parseToken(TokenType.REC);
         rec.name = parseExpression();
-        rec.params = parseListOfParams(new Token(TokenType.EQ, "="));
-        parseToken(new Token(TokenType.EQ, "="));
+        rec.params = parseListOfParams(TokenType.EQ);
+        parseToken(TokenType.EQ);
         rec.fbody = parseExpression();
-        if (tokens.peek().type != TokenType.END_BLOCK) {
-            parseToken(new Token(TokenType.IN, "in"));
+        if (tokens.type(next) != TokenType.END_BLOCK) {
+            parseToken(TokenType.IN);
             rec.letbody = parseExpression();
         }
         return rec;
@@ -117,110 +126,130 @@ public class Parser {
 
     private Expression parseIf() throws WrongSyntaxException {
         Ifthenelse ifte = new Ifthenelse();
-        parseToken(new Token(TokenType.IF, "if"));
+        parseToken(TokenType.IF);
         ifte.guard = parseExpression();
-        parseToken(new Token(TokenType.THEN, "then"));
+        parseToken(TokenType.THEN);
         ifte.then = parseExpression();
-        parseToken(new Token(TokenType.ELSE, "else"));
+        parseToken(TokenType.ELSE);
         ifte.els = parseExpression();
         return ifte;
     }
 
     private Expression parseFunction() throws WrongSyntaxException {
         AnonymusFunction fun = new AnonymusFunction();
-        parseToken(new Token(TokenType.FUN, "function"));
-        fun.formalParams = parseListOfParams(new Token(TokenType.ARROW, "->"));
-        parseToken(new Token(TokenType.ARROW, "->"));
+        parseToken(TokenType.FUN);
+        fun.formalParams = parseListOfParams(TokenType.ARROW);
+        parseToken(TokenType.ARROW);
         fun.body = parseExpression();
         return fun;
     }
 
     private Expression parseParenthesis() throws WrongSyntaxException {
-        parseToken(new Token(TokenType.LPAR, "("));
+        parseToken(TokenType.LPAR);
         Expression firstElem = parseExpression();
-        nextToken = tokens.peek();
-        if (nextToken.type == TokenType.SYMB) {
+        TokenType type = tokens.type(next);
+        if (type == TokenType.SYMB) {
             BinaryOperation bop = new BinaryOperation();
             bop.e1 = firstElem;
             bop.op = parseSymbol();
             bop.e2 = parseExpression();
-            parseToken(new Token(TokenType.RPAR, ")"));
+            parseToken(TokenType.RPAR);
             return bop;
-        } else if (nextToken.type != TokenType.RPAR) {
+        } else if (type != TokenType.RPAR) {
             FunctionalApplication app = new FunctionalApplication();
             app.iden = firstElem;
-            app.actualParams = parseListOfParams(new Token(TokenType.RPAR, ")"));
-            parseToken(new Token(TokenType.RPAR, ")"));
+            app.actualParams = parseListOfParams(TokenType.RPAR);
+            parseToken(TokenType.RPAR);
             return app;
         } else {
-            parseToken(new Token(TokenType.RPAR, ")"));
+            parseToken(TokenType.RPAR);
             return firstElem;
         }
     }
 
-    private Lis parseList() throws WrongSyntaxException {
-        Lis l = new Lis();
-        parseToken(new Token(TokenType.LIST_S, "["));
-        while (tokens.peek().type != TokenType.LIST_E)
-            l.lis.add(parseExpression());
-        parseToken(new Token(TokenType.LIST_E, "]"));
+    private ListLiteral parseList() throws WrongSyntaxException {
+        ListLiteral l = new ListLiteral();
+        parseToken(TokenType.LIST_S);
+        while (tokens.type(next) != TokenType.LIST_E)
+            l.elements.add(parseExpression());
+        parseToken(TokenType.LIST_E);
         return l;
     }
 
     private Expression parseListOperation() throws WrongSyntaxException {
-        String[] s = tokens.remove().value.split("\\.");
+        String text = tokens.text(next++);
+        Operator op = Operator.of(text);
         ListOperation lop = new ListOperation();
-        switch (s[1]) {
-            case "fold":
+        switch (op) {
+            case FOLD:
                 lop.arg1 = parseExpression();
-            case "cons":
-            case "append":
-            case "map":
-            case "filter":
-            case "exists":
-            case "forAll":
+            case CONS:
+            case APPEND:
+            case MAP:
+            case FILTER:
+            case EXISTS:
+            case FOR_ALL:
                 lop.arg2 = parseExpression();
-            case "hd":
-            case "tl":
-            case "isEmpty":
-            case "length":
-            case "rev":
+            case HD:
+            case TL:
+            case IS_EMPTY:
+            case LENGTH:
+            case REV:
                 lop.list = parseExpression();
-                lop.op = new Symbol(s[1]);
+                lop.op = new Symbol(op);
                 return lop;
+            case null:
             default:
-                throw new WrongSyntaxException("invalid list operation '" + s[0] + "." + s[1] + "'");
+                throw new WrongSyntaxException("invalid list operation 'List." + text + "'" + at(next - 1));
         }
     }
 
+    private Expression parseSeqOperation() throws WrongSyntaxException {
+        String text = tokens.text(next++);
+        Operator op = Operator.of(text);
+        SeqOperation sop = new SeqOperation();
+        int operands = switch (op) {
+            case FOLD -> 3;
+            case RANGE, MAP, FILTER, TAKE, EXISTS, FOR_ALL -> 2;
+            case OF_LIST, TO_LIST, LENGTH -> 1;
+            case null, default ->
+                throw new WrongSyntaxException("invalid sequence operation 'Seq." + text + "'" + at(next - 1));
+        };
+        for (int i = 0; i < operands; i++)
+            sop.args.add(parseExpression());
+        sop.op = new Symbol(op);
+        return sop;
+    }
+
     private Expression parseUnaryOperation() throws WrongSyntaxException {
         UnaryOperation uop = new UnaryOperation();
-        parseToken(new Token(TokenType.NOT, "!"));
-        uop.op = new Symbol("!");
+        parseToken(TokenType.NOT);
+        uop.op = new Symbol(Operator.NOT);
         uop.arg = parseExpression();
         return uop;
     }
 
-    private void parseToken(Token expected) throws WrongSyntaxException {
-        nextToken = tokens.peek();
-        if (nextToken == null)
-            throw new WrongSyntaxException("expected '" + expected.value + "' but found none");
-        if (nextToken.type != expected.type)
-            throw new WrongSyntaxException("expected '" + expected.value + "' but found '" + nextToken.value + "'");
-        tokens.remove();
+    private void parseToken(TokenType expected) throws WrongSyntaxException {
+        TokenType type = tokens.type(next);
+        if (type == null)
+            throw new WrongSyntaxException("expected '" + expected.text + "' but found none");
+        if (type != expected)
+            throw new WrongSyntaxException(
+                    "expected '" + expected.text + "' but found '" + tokens.text(next) + "'" + at(next));
+        next++;
     }
 
-    private List<Expression> parseListOfParams(Token stopAt)
+    private List<Expression> parseListOfParams(TokenType stopAt)
             throws WrongSyntaxException {
         List<Expression> params = new ArrayList<>();
-        while (tokens.peek().type != stopAt.type) {
+        while (tokens.type(next) != stopAt) {
             if (params.size() > 16)
                 throw new WrongSyntaxException("too many parameters passed to function");
             else {
                 try {
                     params.add(parseExpression());
                 } catch (WrongSyntaxException e) {
-                    throw new WrongSyntaxException("expected '" + stopAt.value + "' to delimit list of parameters");
+                    throw new WrongSyntaxException("expected '" + stopAt.text + "' to delimit list of parameters");
                 }
             }
         }
@@ -230,16 +259,16 @@ public class Parser {
     }
 
     private Symbol parseSymbol() throws WrongSyntaxException {
-        nextToken = tokens.peek();
-        if (nextToken != null) {
-            tokens.remove();
-            switch (nextToken.value) {
-                case "+", "-", "*", "/", "&", "|", ">", "<", ">=", "<=", "%", "^", "==", "!=" -> {
-                    return new Symbol(nextToken.value);
-                }
-                default -> throw new WrongSyntaxException("unexpected operation symbol '" + nextToken.value + "'");
-            }
-        } else
+        TokenType type = tokens.type(next);
+        if (type == null)
             throw new WrongSyntaxException("expected operation symbol but found none");
+        if (type != TokenType.SYMB)
+            throw new WrongSyntaxException("unexpected operation symbol '" + tokens.text(next) + "'" + at(next));
+        return new Symbol(OPERATORS[tokens.value(next++)]);
+    }
+
+    // where token i starts, for error messages
+    private String at(int i) {
+        return " at line " + tokens.line(i) + ", column " + tokens.column(i);
     }
 }
\ No newline at end of file
@@ -0,0 +1,160 @@
+import constructs.*;
+import exceptions.NoBindingException;
+import exceptions.TypeMismatchException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import values.*;
+
+public class Resolver {
+    // names of the global frame, indexed by slot; it only grows across blocks
+    private final List<String> globals = new ArrayList<>();
+    // local frames, innermost first
+    private final LinkedList<List<String>> scopes = new LinkedList<>();
+
+    public Resolver() {
+    }
+
+    // a resolver that knows the globals 'shared' knows, and numbers those declared after on its own
+    public Resolver(Resolver shared) {
+        globals.addAll(shared.globals);
+    }
+
+    // declares a global that is bound before the program runs, like a parameter of a script, and returns its slot
+    public int declare(String name) {
+        globals.add(Identifier.intern(name));
+        return globals.size() - 1;
+    }
+
+    // the number of slots of the global frame
+    public int globals() {
+        return globals.size();
+    }
+
+    public void resolve(Expression e) throws NoBindingException, TypeMismatchException {
+        scopes.clear();
+        visit(e);
+    }
+
+    private void visit(Expression e) throws NoBindingException, TypeMismatchException {
+        switch (e) {
+            case Int _, Bool _ -> {
+            }
+            case Identifier id -> address(id);
+            case AnonymusFunction f -> {
+                scopes.push(names(f.formalParams));
+                visit(f.body);
+                scopes.pop();
+            }
+            case ListLiteral l -> {
+                for (Expression element : l.elements)
+                    visit(element);
+            }
+            case BinaryOperation bop -> {
+                visit(bop.e1);
+                visit(bop.e2);
+            }
+            case UnaryOperation uop -> visit(uop.arg);
+            case Ifthenelse ifte -> {
+                visit(ifte.guard);
+                visit(ifte.then);
+                visit(ifte.els);
+            }
+            case Let let -> {
+                Identifier var = identifier(let.var);
+                if (let.params != null) {
+                    AnonymusFunction fun = new AnonymusFunction();
+                    fun.formalParams = let.params;
+                    fun.body = let.value;
+                    let.value = fun;
+                    let.params = null;
+                }
+                visit(let.value);
+                declare(var, let.body);
+            }
+            case Letrec letr -> {
+                Identifier name = identifier(letr.name);
+                // the activation frame holds the function itself in slot 0, followed by its parameters
+                List<String> frame = names(letr.params);
+                frame.add(0, name.value);
+                scopes.push(frame);
+                visit(letr.fbody);
+                scopes.pop();
+                declare(name, letr.letbody);
+            }
+            case FunctionalApplication app -> {
+                visit(app.iden);
+                for (Expression param : app.actualParams)
+                    visit(param);
+            }
+            case ListOperation lop -> {
+                if (lop.arg1 != null)
+                    visit(lop.arg1);
+                if (lop.arg2 != null)
+                    visit(lop.arg2);
+                visit(lop.list);
+            }
+            case SeqOperation sop -> {
+                for (Expression arg : sop.args)
+                    visit(arg);
+            }
+            default -> {
+            }
+        }
+    }
+
+    // binds 'var' in a fresh frame for 'body', or in the global frame when a top-level declaration has no body
+    private void declare(Identifier var, Expression body) throws NoBindingException, TypeMismatchException {
+        if (body != null) {
+            List<String> frame = new ArrayList<>();
+            frame.add(var.value);
+            scopes.push(frame);
+            visit(body);
+            scopes.pop();
+        } else if (scopes.isEmpty()) {
+            var.depth = 0;
+            var.slot = globals.size();
+            globals.add(var.value);
+        }
+    }
+
+    private void address(Identifier id) throws NoBindingException {
+        int depth = 0;
+        for (List<String> frame : scopes) {
+            int slot = slot(frame, id.value);
+            if (slot != -1) {
+                id.depth = depth;
+                id.slot = slot;
+                return;
+            }
+            depth++;
+        }
+        int slot = slot(globals, id.value);
+        if (slot == -1)
+            throw new NoBindingException("variable '" + id.value + "' is not bound in scope");
+        id.depth = depth;
+        id.slot = slot;
+    }
+
+    // the last slot of 'frame' holding 'name'; names are interned by Identifier, so they compare by reference
+    private static int slot(List<String> frame, String name) {
+        for (int i = frame.size() - 1; i >= 0; i--)
+            if (frame.get(i) == name)
+                return i;
+        return -1;
+    }
+
+    private List<String> names(List<Expression> params) throws TypeMismatchException {
+        List<String> frame = new ArrayList<>();
+        for (Expression param : params)
+            frame.add(identifier(param).value);
+        return frame;
+    }
+
+    private Identifier identifier(Expression e) throws TypeMismatchException {
+        if (e instanceof Identifier id)
+            return id;
+        throw new TypeMismatchException(
+                "expected type 'Identifier' but found type '" + e.getClass().getSimpleName() + "'");
+    }
+}
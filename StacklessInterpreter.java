@@ -0,0 +1,514 @@
+import constructs.*;
+import exceptions.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import runtime.Memo;
+import runtime.Operations;
+import runtime.Sequences;
+import values.*;
+
+// Same semantics as Interpreter, but the work left to do after a subexpression is kept on an explicit
+// continuation stack in the heap instead of the Java stack, so recursion depth is only bounded by memory.
+public class StacklessInterpreter {
+
+    private interface Continuation {
+    }
+
+    private record ListElements(ListLiteral list, Frame env, List<Expression> values) implements Continuation {
+    }
+
+    private record LeftOperand(BinaryOperation bop, Frame env) implements Continuation {
+    }
+
+    private record RightOperand(BinaryOperation bop, Expression e1) implements Continuation {
+    }
+
+    private record Operand(UnaryOperation uop) implements Continuation {
+    }
+
+    private record Guard(Ifthenelse ifte, Frame env) implements Continuation {
+    }
+
+    private record LetValue(Let let, Frame env) implements Continuation {
+    }
+
+    // 'tail' when the call is in tail position of the function body it is in, under --memo only
+    private record Callee(FunctionalApplication app, Frame env, boolean tail) implements Continuation {
+    }
+
+    private record Arguments(FunctionalApplication app, Frame env, Frame fenv, Expression body, Expression[] frame,
+            int offset, int index, boolean tail) implements Continuation {
+    }
+
+    private record ListArgument(ListOperation lop, Frame env) implements Continuation {
+    }
+
+    private record SecondArgument(ListOperation lop, Lis list) implements Continuation {
+    }
+
+    private record SeqArguments(SeqOperation sop, Frame env, List<Expression> values) implements Continuation {
+    }
+
+    private record FoldAccumulator(ListOperation lop, Frame env, Lis list) implements Continuation {
+    }
+
+    // the call of a memoized function with this frame, whose result is to be stored
+    private record Memoized(Expression[] frame) implements Continuation {
+    }
+
+    // the stack height at which the body of the caller started, to go back to once a call not in tail position
+    // returns, under --memo only
+    private record Restore(int base) implements Continuation {
+    }
+
+    // state of a map, filter, exists, forAll or fold waiting for its function, then for the function applied to
+    // 'current'; the function is evaluated and checked once, and called directly on every element
+    private static class Iteration implements Continuation {
+        ListOperation lop;
+        Frame env;
+        Expression function;
+        Iterator<Expression> elements;
+        Expression current;
+        List<Expression> newList = new ArrayList<>();
+        // the answer of an exists or forAll so far, null for the other operations
+        Bool ret;
+        Expression firstAcc, newAcc;
+    }
+
+    // the results of pure recursive functions, or null when they are not memoized
+    private final Memo memo;
+
+    public StacklessInterpreter() {
+        this(null);
+    }
+
+    public StacklessInterpreter(Memo memo) {
+        this.memo = memo;
+    }
+
+    public Expression eval(Expression e, Frame env)
+            throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+            WrongSyntaxException {
+        Deque<Continuation> stack = new ArrayDeque<>();
+        Expression value = null;
+        boolean returning = false;
+        // under --memo, the stack height at which the current function body started: a call made while the stack is
+        // at that height is in tail position and is not memoized, so that it keeps being a proper tail call
+        int base = -1;
+        while (true) {
+            if (!returning) {
+                returning = true;
+                switch (e) {
+                    case Int i -> value = i;
+                    case Bool b -> value = b;
+                    case Identifier id -> value = lookup(id, env);
+                    case AnonymusFunction f -> value = new Closure(f.formalParams, f.body, env);
+                    case ListLiteral l -> {
+                        if (l.elements.isEmpty())
+                            value = Lis.empty();
+                        else {
+                            stack.push(new ListElements(l, env, new ArrayList<>(l.elements.size())));
+                            e = l.elements.getFirst();
+                            returning = false;
+                        }
+                    }
+                    case BinaryOperation bop -> {
+                        stack.push(new LeftOperand(bop, env));
+                        e = bop.e1;
+                        returning = false;
+                    }
+                    case UnaryOperation uop -> {
+                        stack.push(new Operand(uop));
+                        e = uop.arg;
+                        returning = false;
+                    }
+                    case Ifthenelse ifte -> {
+                        stack.push(new Guard(ifte, env));
+                        e = ifte.guard;
+                        returning = false;
+                    }
+                    case Let let -> {
+                        stack.push(new LetValue(let, env));
+                        e = let.value;
+                        returning = false;
+                    }
+                    case Letrec letr -> {
+                        RecursiveClosure closure = new RecursiveClosure((Identifier) letr.name, letr.params,
+                                letr.fbody, env);
+                        closure.memoized = memo != null && Memo.memoizable(closure);
+                        if (letr.letbody != null) {
+                            env = new Frame(env, new Expression[] { closure });
+                            e = letr.letbody;
+                            returning = false;
+                        } else {
+                            define((Identifier) letr.name, closure, env);
+                            value = closure;
+                        }
+                    }
+                    case FunctionalApplication app -> {
+                        stack.push(new Callee(app, env, memo != null && stack.size() == base));
+                        e = app.iden;
+                        returning = false;
+                    }
+                    case ListOperation lop -> {
+                        stack.push(new ListArgument(lop, env));
+                        e = lop.list;
+                        returning = false;
+                    }
+                    case SeqOperation sop -> {
+                        stack.push(new SeqArguments(sop, env, new ArrayList<>(sop.args.size())));
+                        e = sop.args.getFirst();
+                        returning = false;
+                    }
+                    default -> throw new UnknownCommandException(null);
+                }
+                continue;
+            }
+
+            if (stack.isEmpty())
+                return value;
+            // unless a continuation produces a value, it sets 'e' and 'env' to the next expression to evaluate
+            returning = false;
+            switch (stack.pop()) {
+                case ListElements k -> {
+                    List<Expression> values = k.values();
+                    Expression type = values.isEmpty() ? Operations.elementType(value) : values.getFirst();
+                    if (!k.list().typed)
+                        typecheck(value, type);
+                    values.add(value);
+                    if (values.size() < k.list().elements.size()) {
+                        stack.push(k);
+                        e = k.list().elements.get(values.size());
+                        env = k.env();
+                    } else {
+                        value = Lis.of(values, type);
+                        returning = true;
+                    }
+                }
+                case LeftOperand k -> {
+                    stack.push(new RightOperand(k.bop(), value));
+                    e = k.bop().e2;
+                    env = k.env();
+                }
+                case RightOperand k -> {
+                    value = Operations.binary(k.bop().op, k.e1(), value);
+                    returning = true;
+                }
+                case Operand k -> {
+                    value = Operations.unary(k.uop().op, value);
+                    returning = true;
+                }
+                case Guard k -> {
+                    if (!k.ifte().typed)
+                        typecheck(value, Bool.class);
+                    e = ((Bool) value).value == true ? k.ifte().then : k.ifte().els;
+                    env = k.env();
+                }
+                case LetValue k -> {
+                    if (k.let().body != null) {
+                        env = new Frame(k.env(), new Expression[] { value });
+                        e = k.let().body;
+                    } else {
+                        define((Identifier) k.let().var, value, k.env());
+                        returning = true;
+                    }
+                }
+                case Callee k -> {
+                    FunctionalApplication app = k.app();
+                    Arguments args;
+                    switch (value) {
+                        case Closure clo -> {
+                            if (clo.body != app.callee) {
+                                if (app.actualParams.size() != clo.params.size())
+                                    throw new WrongSyntaxException(
+                                            "functional application parameters do not match the function signature");
+                                app.callee = clo.body;
+                            }
+                            args = new Arguments(app, k.env(), clo.fenv, clo.body,
+                                    new Expression[clo.params.size()], 0, 0, k.tail());
+                        }
+                        case RecursiveClosure rec -> {
+                            if (rec.body != app.callee) {
+                                if (app.actualParams.size() != rec.params.size())
+                                    throw new WrongSyntaxException(
+                                            "functional application parameters do not match the function signature");
+                                app.callee = rec.body;
+                            }
+                            args = new Arguments(app, k.env(), rec.fenv, rec.body,
+                                    new Expression[rec.params.size() + 1], 1, 0, k.tail());
+                            args.frame()[0] = rec;
+                        }
+                        default -> throw new TypeMismatchException("not a functional value passed");
+                    }
+                    stack.push(args);
+                    e = app.actualParams.getFirst();
+                    env = k.env();
+                }
+                case Arguments k -> {
+                    k.frame()[k.offset() + k.index()] = value;
+                    if (k.index() + 1 < k.app().actualParams.size()) {
+                        stack.push(new Arguments(k.app(), k.env(), k.fenv(), k.body(), k.frame(), k.offset(),
+                                k.index() + 1, k.tail()));
+                        e = k.app().actualParams.get(k.index() + 1);
+                        env = k.env();
+                    } else if (k.offset() == 1 && ((RecursiveClosure) k.frame()[0]).memoized && !k.tail()) {
+                        // the result is looked up, or stored once the body has given it
+                        value = memo.get(k.frame());
+                        if (value != null) {
+                            returning = true;
+                        } else {
+                            stack.push(new Restore(base));
+                            stack.push(new Memoized(k.frame()));
+                            base = stack.size();
+                            env = new Frame(k.fenv(), k.frame());
+                            e = k.body();
+                        }
+                    } else {
+                        // nothing is pushed for the body, which makes every call a proper tail call, but for the
+                        // height of the caller's body under --memo when the call is not in tail position
+                        if (memo != null) {
+                            if (!k.tail())
+                                stack.push(new Restore(base));
+                            base = stack.size();
+                        }
+                        env = new Frame(k.fenv(), k.frame());
+                        e = k.body();
+                    }
+                }
+                case ListArgument k -> {
+                    ListOperation lop = k.lop();
+                    if (!lop.typed)
+                        typecheck(value, Lis.class);
+                    Lis oplis = (Lis) value;
+                    switch (lop.op.code) {
+                        case CONS, APPEND -> {
+                            stack.push(new SecondArgument(lop, oplis));
+                            e = lop.arg2;
+                            env = k.env();
+                        }
+                        case HD -> {
+                            value = Operations.hd(oplis);
+                            returning = true;
+                        }
+                        case TL -> {
+                            value = Operations.tl(oplis);
+                            returning = true;
+                        }
+                        case IS_EMPTY -> {
+                            value = Operations.isEmpty(oplis);
+                            returning = true;
+                        }
+                        case LENGTH -> {
+                            value = Operations.length(oplis);
+                            returning = true;
+                        }
+                        case REV -> {
+                            value = Operations.rev(oplis);
+                            returning = true;
+                        }
+                        case MAP, FILTER, EXISTS, FOR_ALL -> {
+                            Iteration it = new Iteration();
+                            it.lop = lop;
+                            it.env = k.env();
+                            it.elements = oplis.iterator();
+                            if (lop.op.code == Operator.EXISTS || lop.op.code == Operator.FOR_ALL)
+                                it.ret = Bool.of(lop.op.code == Operator.FOR_ALL);
+                            if (oplis.isEmpty()) {
+                                value = result(it);
+                                returning = true;
+                            } else {
+                                stack.push(it);
+                                e = lop.arg2;
+                                env = k.env();
+                            }
+                        }
+                        case FOLD -> {
+                            stack.push(new FoldAccumulator(lop, k.env(), oplis));
+                            e = lop.arg2;
+                            env = k.env();
+                        }
+                        default -> throw new UnknownCommandException("unknown list operation '" + lop.op.value + "'");
+                    }
+                }
+                // the functions of a sequence run in a nested evaluation, one per application
+                case SeqArguments k -> {
+                    k.values().add(value);
+                    if (k.values().size() < k.sop().args.size()) {
+                        stack.push(k);
+                        e = k.sop().args.get(k.values().size());
+                        env = k.env();
+                    } else {
+                        value = Sequences.evaluate(k.sop().op.code, k.values(), this::apply);
+                        returning = true;
+                    }
+                }
+                case SecondArgument k -> {
+                    if (k.lop().op.code == Operator.CONS)
+                        value = Operations.cons(value, k.list());
+                    else
+                        value = Operations.append(k.list(), value);
+                    returning = true;
+                }
+                case FoldAccumulator k -> {
+                    Iteration it = new Iteration();
+                    it.lop = k.lop();
+                    it.env = k.env();
+                    it.elements = k.list().iterator();
+                    it.firstAcc = value;
+                    if (k.list().isEmpty()) {
+                        value = result(it);
+                        returning = true;
+                    } else {
+                        stack.push(it);
+                        e = it.lop.arg1;
+                        env = k.env();
+                    }
+                }
+                case Iteration it -> {
+                    if (it.function == null) {
+                        check(value, it.lop.op.code == Operator.FOLD ? 2 : 1);
+                        it.function = value;
+                    } else
+                        switch (it.lop.op.code) {
+                            case MAP -> it.newList.add(value);
+                            case FILTER -> {
+                                if (!it.lop.typed)
+                                    typecheck(value, Bool.class);
+                                if (((Bool) value).value == true)
+                                    it.newList.add(it.current);
+                            }
+                            case EXISTS -> {
+                                if (!it.lop.typed)
+                                    typecheck(value, Bool.class);
+                                if (((Bool) value).value == true)
+                                    it.ret = Bool.TRUE;
+                            }
+                            case FOR_ALL -> {
+                                if (!it.lop.typed)
+                                    typecheck(value, Bool.class);
+                                if (((Bool) value).value == false)
+                                    it.ret = Bool.FALSE;
+                            }
+                            default -> {
+                                it.newAcc = value;
+                                if (!it.lop.typed)
+                                    typecheck(it.newAcc, it.firstAcc);
+                            }
+                        }
+                    Frame frame = next(it, stack);
+                    if (frame == null) {
+                        value = result(it);
+                        returning = true;
+                    } else {
+                        if (memo != null) {
+                            stack.push(new Restore(base));
+                            base = stack.size();
+                        }
+                        env = frame;
+                        e = it.function instanceof Closure clo ? clo.body : ((RecursiveClosure) it.function).body;
+                    }
+                }
+                case Memoized k -> {
+                    memo.put(k.frame(), value);
+                    returning = true;
+                }
+                case Restore k -> {
+                    base = k.base();
+                    returning = true;
+                }
+                default -> throw new UnknownCommandException(null);
+            }
+        }
+    }
+
+    private static void check(Expression function, int arity) throws TypeMismatchException, WrongSyntaxException {
+        int params = switch (function) {
+            case Closure clo -> clo.params.size();
+            case RecursiveClosure rec -> rec.params.size();
+            default -> throw new TypeMismatchException("not a functional value passed");
+        };
+        if (params != arity)
+            throw new WrongSyntaxException("functional application parameters do not match the function signature");
+    }
+
+    // applies a functional value to arguments already evaluated
+    private Expression apply(Expression function, Expression... args)
+            throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+            WrongSyntaxException {
+        switch (function) {
+            case Closure clo -> {
+                if (args.length != clo.params.size())
+                    throw new WrongSyntaxException(
+                            "functional application parameters do not match the function signature");
+                return eval(clo.body, new Frame(clo.fenv, args.clone()));
+            }
+            case RecursiveClosure rec -> {
+                if (args.length != rec.params.size())
+                    throw new WrongSyntaxException(
+                            "functional application parameters do not match the function signature");
+                Expression[] frame = new Expression[args.length + 1];
+                frame[0] = rec;
+                System.arraycopy(args, 0, frame, 1, args.length);
+                return eval(rec.body, new Frame(rec.fenv, frame));
+            }
+            default -> throw new TypeMismatchException("not a functional value passed");
+        }
+    }
+
+    // the frame of the call of the function on the next element, or null when the list is over or the result
+    // already known: an exists that found true, a forAll that found false
+    private Frame next(Iteration it, Deque<Continuation> stack) {
+        if (!it.elements.hasNext() || it.ret != null && it.ret.value == (it.lop.op.code == Operator.EXISTS))
+            return null;
+        it.current = it.elements.next();
+        stack.push(it);
+        Expression acc = it.newAcc == null ? it.firstAcc : it.newAcc;
+        boolean fold = it.lop.op.code == Operator.FOLD;
+        if (it.function instanceof Closure clo)
+            return new Frame(clo.fenv, fold ? new Expression[] { it.current, acc } : new Expression[] { it.current });
+        RecursiveClosure rec = (RecursiveClosure) it.function;
+        return new Frame(rec.fenv,
+                fold ? new Expression[] { rec, it.current, acc } : new Expression[] { rec, it.current });
+    }
+
+    private Expression result(Iteration it) {
+        switch (it.lop.op.code) {
+            case MAP, FILTER -> {
+                return Lis.of(it.newList, null);
+            }
+            case EXISTS, FOR_ALL -> {
+                return it.ret;
+            }
+            default -> {
+                return it.newAcc;
+            }
+        }
+    }
+
+    private void typecheck(Expression actualType, Expression expectedType) throws TypeMismatchException {
+        Operations.typecheck(actualType, expectedType);
+    }
+
+    private void typecheck(Expression actualType, Class<? extends Expression> expectedType)
+            throws TypeMismatchException {
+        Operations.typecheck(actualType, expectedType);
+    }
+
+    // stores a top-level declaration in the global frame, which is always the outermost one
+    private void define(Identifier var, Expression value, Frame env) {
+        if (var.slot < 0)
+            return;
+        while (env.parent != null)
+            env = env.parent;
+        env.set(var.slot, value);
+    }
+
+    private Expression lookup(Identifier iden, Frame env) throws NoBindingException {
+        if (iden.depth < 0)
+            throw new NoBindingException("variable '" + iden.value + "' is not bound in scope");
+        return env.get(iden.depth, iden.slot);
+    }
+}
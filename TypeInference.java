@@ -0,0 +1,473 @@
+import constructs.*;
+import exceptions.TypeMismatchException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import types.*;
+import values.*;
+
+// Infers the types of a resolved block in the Hindley-Milner way, so that type errors are reported before it
+// runs. Declarations made with let are polymorphic; the parameters of a function and a recursive function
+// inside its own body are not. Variables are read through the lexical addresses of the Resolver, with the types
+// of the global frame kept from block to block. Once a block is typed, the list literals, ifs and list
+// operations in it are marked as such, and the evaluators skip the checks the types already guarantee.
+public class TypeInference {
+    // types of the global frame, indexed by slot
+    private final List<Type> globals = new ArrayList<>();
+    // local frames, innermost first, as the Resolver numbers them
+    private final LinkedList<Type[]> frames = new LinkedList<>();
+    // depth of the let declaration being typed
+    private int level;
+    // the constructs of the block whose checks the types make redundant, marked once the whole block is typed
+    private final List<Expression> checked = new ArrayList<>();
+
+    public TypeInference() {
+    }
+
+    // an inference that knows the types of the globals 'shared' knows; as the generalized variables in them are
+    // copied on every use, typing with it never changes those of 'shared'
+    public TypeInference(TypeInference shared) {
+        globals.addAll(shared.globals);
+    }
+
+    // gives the global in 'slot', a parameter of a script, a type that the uses of the parameter decide, as they do
+    // for the parameter of a function
+    public Type parameter(int slot) {
+        while (globals.size() <= slot)
+            globals.add(null);
+        Type type = variable();
+        globals.set(slot, type);
+        return type;
+    }
+
+    // checks the arguments of a script against the types of its parameters, which are copied first, so that they
+    // can be checked on several threads at once; functions and sequences cannot be passed, since their types
+    // are only known to the script that made them
+    public static void check(List<Type> params, List<String> names, Expression[] args)
+            throws TypeMismatchException {
+        TypeInference typer = new TypeInference();
+        Map<Variable, Variable> copies = new IdentityHashMap<>();
+        for (int i = 0; i < args.length; i++)
+            typer.expect(typer.instantiate(params.get(i), 0, copies), typer.typeOf(args[i]),
+                    "argument '" + names.get(i) + "'");
+    }
+
+    // the type of a value built from integers, booleans and lists
+    private Type typeOf(Expression value) throws TypeMismatchException {
+        switch (value) {
+            case Int _ -> {
+                return Primitive.INT;
+            }
+            case Bool _ -> {
+                return Primitive.BOOL;
+            }
+            case Lis l -> {
+                Expression sample = l.isEmpty() ? l.type : l.head();
+                return new ListType(sample == null ? variable() : typeOf(sample));
+            }
+            case null -> throw new TypeMismatchException("no value passed");
+            default -> throw new TypeMismatchException(
+                    "a value of type '" + value.getClass().getSimpleName() + "' cannot be passed to a script");
+        }
+    }
+
+    public Type infer(Expression e) throws TypeMismatchException {
+        frames.clear();
+        checked.clear();
+        level = 0;
+        Type type = visit(e);
+        for (Expression construct : checked)
+            switch (construct) {
+                case ListLiteral l -> l.typed = true;
+                case Ifthenelse ifte -> ifte.typed = true;
+                case ListOperation lop -> lop.typed = true;
+                default -> {
+                }
+            }
+        return type;
+    }
+
+    private Type visit(Expression e) throws TypeMismatchException {
+        switch (e) {
+            case Int _ -> {
+                return Primitive.INT;
+            }
+            case Bool _ -> {
+                return Primitive.BOOL;
+            }
+            case Identifier id -> {
+                Type type = id.depth < frames.size() ? frames.get(id.depth)[id.slot] : globals.get(id.slot);
+                return instantiate(type, Variable.GENERIC, new IdentityHashMap<>());
+            }
+            case AnonymusFunction f -> {
+                List<Type> params = variables(f.formalParams.size());
+                frames.push(params.toArray(new Type[0]));
+                Type body = visit(f.body);
+                frames.pop();
+                return new FunctionType(params, body);
+            }
+            case ListLiteral l -> {
+                Type element = variable();
+                for (Expression e1 : l.elements)
+                    expect(element, visit(e1), "list element");
+                checked.add(l);
+                return new ListType(element);
+            }
+            case BinaryOperation bop -> {
+                return binary(bop);
+            }
+            case UnaryOperation uop -> {
+                expect(Primitive.BOOL, visit(uop.arg), "operand of " + uop.op.value);
+                return Primitive.BOOL;
+            }
+            case Ifthenelse ifte -> {
+                expect(Primitive.BOOL, visit(ifte.guard), "guard of if");
+                Type type = visit(ifte.then);
+                expect(type, visit(ifte.els), "else branch");
+                checked.add(ifte);
+                return type;
+            }
+            case Let let -> {
+                level++;
+                Type value = visit(let.value);
+                level--;
+                generalize(value);
+                return declare((Identifier) let.var, value, let.body);
+            }
+            case Letrec letr -> {
+                level++;
+                Variable function = variable();
+                List<Type> params = variables(letr.params.size());
+                Type[] frame = new Type[params.size() + 1];
+                frame[0] = function;
+                for (int i = 0; i < params.size(); i++)
+                    frame[i + 1] = params.get(i);
+                frames.push(frame);
+                Type body = visit(letr.fbody);
+                frames.pop();
+                expect(function, new FunctionType(params, body), "recursive function");
+                level--;
+                generalize(function);
+                return declare((Identifier) letr.name, function, letr.letbody);
+            }
+            case FunctionalApplication app -> {
+                Type function = visit(app.iden);
+                List<Type> args = new ArrayList<>(app.actualParams.size());
+                for (Expression param : app.actualParams)
+                    args.add(visit(param));
+                if (Type.resolve(function) instanceof FunctionType f && f.params().size() != args.size())
+                    throw new TypeMismatchException("function of type '" + Type.show(f) + "' applied to "
+                            + args.size() + " argument" + (args.size() == 1 ? "" : "s"));
+                Type result = variable();
+                expect(new FunctionType(args, result), function, "applied function");
+                return result;
+            }
+            case ListOperation lop -> {
+                Type type = listOperation(lop);
+                checked.add(lop);
+                return type;
+            }
+            case SeqOperation sop -> {
+                return seqOperation(sop);
+            }
+            default -> throw new TypeMismatchException(
+                    "cannot infer the type of '" + e.getClass().getSimpleName() + "'");
+        }
+    }
+
+    // binds the declared type for 'body', or in the global frame for a top-level declaration
+    private Type declare(Identifier var, Type type, Expression body) throws TypeMismatchException {
+        if (body != null) {
+            frames.push(new Type[] { type });
+            Type result = visit(body);
+            frames.pop();
+            return result;
+        }
+        if (var.slot >= 0) {
+            while (globals.size() <= var.slot)
+                globals.add(null);
+            globals.set(var.slot, type);
+        }
+        return instantiate(type, Variable.GENERIC, new IdentityHashMap<>());
+    }
+
+    private Type binary(BinaryOperation bop) throws TypeMismatchException {
+        Type t1 = visit(bop.e1), t2 = visit(bop.e2);
+        String operand = "operand of " + bop.op.value;
+        switch (bop.op.code) {
+            case ADD, SUB, MUL, DIV, MOD -> {
+                expect(Primitive.INT, t1, operand);
+                expect(Primitive.INT, t2, operand);
+                return Primitive.INT;
+            }
+            case GT, LT, GE, LE -> {
+                expect(Primitive.INT, t1, operand);
+                expect(Primitive.INT, t2, operand);
+                return Primitive.BOOL;
+            }
+            case AND, OR -> {
+                expect(Primitive.BOOL, t1, operand);
+                expect(Primitive.BOOL, t2, operand);
+                return Primitive.BOOL;
+            }
+            // both operands are integers or both booleans
+            case XOR -> {
+                Variable type = new Variable(level, true);
+                expect(type, t1, operand);
+                expect(type, t2, operand);
+                return type;
+            }
+            case EQ, NE -> {
+                Variable type = new Variable(level, true);
+                expect(type, t1, operand);
+                expect(type, t2, operand);
+                return Primitive.BOOL;
+            }
+            default -> throw new TypeMismatchException("unknown operation '" + bop.op.value + "'");
+        }
+    }
+
+    private Type listOperation(ListOperation lop) throws TypeMismatchException {
+        Type element = variable();
+        ListType list = new ListType(element);
+        expect(list, visit(lop.list), "list of List." + lop.op.value);
+        switch (lop.op.code) {
+            case HD -> {
+                return element;
+            }
+            case TL, REV -> {
+                return list;
+            }
+            case IS_EMPTY -> {
+                return Primitive.BOOL;
+            }
+            case LENGTH -> {
+                return Primitive.INT;
+            }
+            case CONS -> {
+                expect(element, visit(lop.arg2), "element of List.cons");
+                return list;
+            }
+            case APPEND -> {
+                expect(list, visit(lop.arg2), "list of List.append");
+                return list;
+            }
+            case MAP -> {
+                Type result = variable();
+                expect(function(element, result), visit(lop.arg2), "function of List.map");
+                return new ListType(result);
+            }
+            case FILTER -> {
+                expect(function(element, Primitive.BOOL), visit(lop.arg2), "function of List.filter");
+                return list;
+            }
+            case EXISTS, FOR_ALL -> {
+                expect(function(element, Primitive.BOOL), visit(lop.arg2), "function of List." + lop.op.value);
+                return Primitive.BOOL;
+            }
+            // the function takes an element and the accumulator
+            case FOLD -> {
+                Type accumulator = visit(lop.arg2);
+                expect(new FunctionType(List.of(element, accumulator), accumulator), visit(lop.arg1),
+                        "function of List.fold");
+                return accumulator;
+            }
+            default -> throw new TypeMismatchException("unknown list operation '" + lop.op.value + "'");
+        }
+    }
+
+    private Type seqOperation(SeqOperation sop) throws TypeMismatchException {
+        List<Type> args = new ArrayList<>(sop.args.size());
+        for (Expression arg : sop.args)
+            args.add(visit(arg));
+        String what = "operand of Seq." + sop.op.value;
+        Type element = variable();
+        SeqType seq = new SeqType(element);
+        switch (sop.op.code) {
+            case RANGE -> {
+                expect(Primitive.INT, args.get(0), what);
+                expect(Primitive.INT, args.get(1), what);
+                return new SeqType(Primitive.INT);
+            }
+            case OF_LIST -> {
+                expect(new ListType(element), args.get(0), what);
+                return seq;
+            }
+            case MAP -> {
+                Type result = variable();
+                expect(function(element, result), args.get(0), what);
+                expect(seq, args.get(1), what);
+                return new SeqType(result);
+            }
+            case FILTER -> {
+                expect(function(element, Primitive.BOOL), args.get(0), what);
+                expect(seq, args.get(1), what);
+                return seq;
+            }
+            case TAKE -> {
+                expect(Primitive.INT, args.get(0), what);
+                expect(seq, args.get(1), what);
+                return seq;
+            }
+            case TO_LIST -> {
+                expect(seq, args.get(0), what);
+                return new ListType(element);
+            }
+            case LENGTH -> {
+                expect(seq, args.get(0), what);
+                return Primitive.INT;
+            }
+            case FOLD -> {
+                Type accumulator = args.get(1);
+                expect(new FunctionType(List.of(element, accumulator), accumulator), args.get(0), what);
+                expect(seq, args.get(2), what);
+                return accumulator;
+            }
+            case EXISTS, FOR_ALL -> {
+                expect(function(element, Primitive.BOOL), args.get(0), what);
+                expect(seq, args.get(1), what);
+                return Primitive.BOOL;
+            }
+            default -> throw new TypeMismatchException("unknown sequence operation 'Seq." + sop.op.value + "'");
+        }
+    }
+
+    // unifies the type found for 'what' with the one expected, reporting both whole when they do not match
+    private void expect(Type expected, Type actual, String what) throws TypeMismatchException {
+        try {
+            unify(expected, actual);
+        } catch (Mismatch e) {
+            Map<Variable, String> names = new IdentityHashMap<>();
+            throw new TypeMismatchException("expected type '" + Type.show(expected, names) + "' but found type '"
+                    + Type.show(actual, names) + "' for " + what);
+        }
+    }
+
+    private static class Mismatch extends Exception {
+    }
+
+    private void unify(Type type1, Type type2) throws Mismatch {
+        Type t1 = Type.resolve(type1), t2 = Type.resolve(type2);
+        if (t1 == t2)
+            return;
+        if (t1 instanceof Variable v) {
+            bind(v, t2);
+            return;
+        }
+        if (t2 instanceof Variable v) {
+            bind(v, t1);
+            return;
+        }
+        switch (t1) {
+            case ListType l1 when t2 instanceof ListType l2 -> unify(l1.element(), l2.element());
+            case SeqType s1 when t2 instanceof SeqType s2 -> unify(s1.element(), s2.element());
+            case FunctionType f1 when t2 instanceof FunctionType f2 && f1.params().size() == f2.params().size() -> {
+                for (int i = 0; i < f1.params().size(); i++)
+                    unify(f1.params().get(i), f2.params().get(i));
+                unify(f1.result(), f2.result());
+            }
+            default -> throw new Mismatch();
+        }
+    }
+
+    // the variables of 'type' are lowered to the level of 'v', which they now depend on, and must be comparable
+    // when it must
+    private void bind(Variable v, Type type) throws Mismatch {
+        if (v.equality && !(type instanceof Primitive || type instanceof Variable))
+            throw new Mismatch();
+        if (occurs(v, type))
+            throw new Mismatch();
+        if (type instanceof Variable w)
+            w.equality |= v.equality;
+        v.binding = type;
+    }
+
+    private static boolean occurs(Variable v, Type type) {
+        switch (Type.resolve(type)) {
+            case Variable w -> {
+                if (w == v)
+                    return true;
+                w.level = Math.min(w.level, v.level);
+                return false;
+            }
+            case Primitive _ -> {
+                return false;
+            }
+            case ListType l -> {
+                return occurs(v, l.element());
+            }
+            case SeqType s -> {
+                return occurs(v, s.element());
+            }
+            case FunctionType f -> {
+                for (Type param : f.params())
+                    if (occurs(v, param))
+                        return true;
+                return occurs(v, f.result());
+            }
+        }
+    }
+
+    // the variables made while typing the value of a declaration and still unbound stand for any type
+    private void generalize(Type type) {
+        switch (Type.resolve(type)) {
+            case Variable v -> {
+                if (v.level > level)
+                    v.level = Variable.GENERIC;
+            }
+            case Primitive _ -> {
+            }
+            case ListType l -> generalize(l.element());
+            case SeqType s -> generalize(s.element());
+            case FunctionType f -> {
+                for (Type param : f.params())
+                    generalize(param);
+                generalize(f.result());
+            }
+        }
+    }
+
+    // a copy of 'type' with fresh variables in place of those of level 'from' and over; from GENERIC, of the
+    // generalized ones
+    private Type instantiate(Type type, int from, Map<Variable, Variable> copies) {
+        switch (Type.resolve(type)) {
+            case Variable v -> {
+                if (v.level < from)
+                    return v;
+                return copies.computeIfAbsent(v, k -> new Variable(level, v.equality));
+            }
+            case Primitive p -> {
+                return p;
+            }
+            case ListType l -> {
+                return new ListType(instantiate(l.element(), from, copies));
+            }
+            case SeqType s -> {
+                return new SeqType(instantiate(s.element(), from, copies));
+            }
+            case FunctionType f -> {
+                List<Type> params = new ArrayList<>(f.params().size());
+                for (Type param : f.params())
+                    params.add(instantiate(param, from, copies));
+                return new FunctionType(params, instantiate(f.result(), from, copies));
+            }
+        }
+    }
+
+    private Variable variable() {
+        return new Variable(level, false);
+    }
+
+    private List<Type> variables(int count) {
+        List<Type> variables = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            variables.add(variable());
+        return variables;
+    }
+
+    private Type function(Type param, Type result) {
+        return new FunctionType(List.of(param), result);
+    }
+}
@@ -0,0 +1,49 @@
+package bench;
+
+import constructs.Expression;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Interpreter.eval on calls of fact and search from test/test.ml and of a naive fib, with and without compiling
+// hot functions to JVM bytecode (--no-jit); one operation is one call from the top level.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class EvalBenchmark {
+    @Param({ "true", "false" })
+    public boolean jit;
+
+    private Pipeline pipeline;
+    private Expression fact, fib, search;
+
+    @Setup
+    public void setUp() throws Throwable {
+        pipeline = new Pipeline(jit);
+        for (String block : Pipeline.blocks(Pipeline.program()))
+            pipeline.load(block);
+        pipeline.load("let rec fib n = if (n < 2) then n else ((fib (n - 1)) + (fib (n - 2))) ;;");
+        pipeline.load("let rec range n acc = if (n == 0) then acc else (range (n - 1) (List.cons n acc)) ;;");
+        pipeline.load("let big = (range 1000 []) ;;");
+        fact = pipeline.compile("(fact 12) ;;");
+        fib = pipeline.compile("(fib 15) ;;");
+        search = pipeline.compile("(search 1000 big 0) ;;");
+    }
+
+    @Benchmark
+    public Expression fact() throws Throwable {
+        return pipeline.eval(fact);
+    }
+
+    @Benchmark
+    public Expression fib() throws Throwable {
+        return pipeline.eval(fib);
+    }
+
+    @Benchmark
+    public Expression search() throws Throwable {
+        return pipeline.eval(search);
+    }
+}
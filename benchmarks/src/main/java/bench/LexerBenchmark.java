@@ -0,0 +1,28 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import token.Tokens;
+
+// Lexer.tokenize on the whole of test/test.ml; one operation lexes the program once.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class LexerBenchmark {
+    private Pipeline pipeline;
+    private String program;
+
+    @Setup
+    public void setUp() throws Throwable {
+        pipeline = new Pipeline(true);
+        program = Pipeline.program();
+    }
+
+    @Benchmark
+    public Tokens tokenize() throws Throwable {
+        return pipeline.lex(program);
+    }
+}
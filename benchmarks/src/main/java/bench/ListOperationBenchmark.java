@@ -0,0 +1,47 @@
+package bench;
+
+import constructs.Expression;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Interpreter.eval on every List operation, over lists of integers of several sizes; the functions of the higher
+// order ones visit every element.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class ListOperationBenchmark {
+    @Param({ "10", "1000", "100000" })
+    public int size;
+
+    @Param({ "hd", "tl", "isEmpty", "length", "rev", "cons", "append", "map", "filter", "exists", "forAll",
+            "fold" })
+    public String op;
+
+    private Pipeline pipeline;
+    private Expression operation;
+
+    @Setup
+    public void setUp() throws Throwable {
+        pipeline = new Pipeline(true);
+        pipeline.load("let rec range n acc = if (n == 0) then acc else (range (n - 1) (List.cons n acc)) ;;");
+        pipeline.load("let l = (range " + size + " []) ;;");
+        operation = pipeline.compile(switch (op) {
+            case "cons" -> "(List.cons 0 l) ;;";
+            case "append" -> "(List.append l l) ;;";
+            case "map" -> "(List.map (function x -> (x + 1)) l) ;;";
+            case "filter" -> "(List.filter (function x -> ((x % 2) == 0)) l) ;;";
+            case "exists" -> "(List.exists (function x -> (x < 0)) l) ;;";
+            case "forAll" -> "(List.forAll (function x -> (x > 0)) l) ;;";
+            case "fold" -> "(List.fold (function x acc -> (acc + x)) 0 l) ;;";
+            default -> "(List." + op + " l) ;;";
+        });
+    }
+
+    @Benchmark
+    public Expression eval() throws Throwable {
+        return pipeline.eval(operation);
+    }
+}
@@ -0,0 +1,36 @@
+package bench;
+
+import constructs.Expression;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import token.Tokens;
+
+// Parser.parse on the blocks of test/test.ml, lexed beforehand; one operation parses every block once.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class ParserBenchmark {
+    private Pipeline pipeline;
+    private final List<Tokens> blocks = new ArrayList<>();
+
+    @Setup
+    public void setUp() throws Throwable {
+        pipeline = new Pipeline(true);
+        for (String block : Pipeline.blocks(Pipeline.program()))
+            blocks.add(Pipeline.tokens(block));
+    }
+
+    @Benchmark
+    public void parse(Blackhole bh) throws Throwable {
+        for (Tokens tokens : blocks) {
+            Expression e = pipeline.parse(tokens);
+            bh.consume(e);
+        }
+    }
+}
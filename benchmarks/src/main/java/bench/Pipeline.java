@@ -0,0 +1,139 @@
+package bench;
+
+import constructs.Expression;
+import constructs.Frame;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import token.Tokens;
+import types.Type;
+
+// The front end and the interpreter, run on a block as Main runs them. Their classes are in the default package,
+// which a class in a package cannot name, so they are reached through method handles; held in static finals the
+// handles are constants to the JIT, and once compiled a call through one costs what a direct call does.
+final class Pipeline {
+    private static final MethodHandle NEW_LEXER = constructor("Lexer");
+    private static final MethodHandle SET_SOURCE = method("Lexer", "setInput", void.class, CharSequence.class);
+    private static final MethodHandle TOKENIZE = method("Lexer", "tokenize", void.class);
+    private static final MethodHandle TOKENS = method("Lexer", "getResult", Tokens.class);
+    private static final MethodHandle NEW_PARSER = constructor("Parser");
+    private static final MethodHandle SET_TOKENS = method("Parser", "setInput", void.class, Tokens.class);
+    private static final MethodHandle PARSE = method("Parser", "parse", void.class);
+    private static final MethodHandle TREE = method("Parser", "getResult", Expression.class);
+    private static final MethodHandle NEW_RESOLVER = constructor("Resolver");
+    private static final MethodHandle RESOLVE = method("Resolver", "resolve", void.class, Expression.class);
+    private static final MethodHandle NEW_TYPER = constructor("TypeInference");
+    // the type of the block is of no use here
+    private static final MethodHandle INFER = MethodHandles.dropReturn(method("TypeInference", "infer", Type.class,
+            Expression.class));
+    private static final MethodHandle NEW_OPTIMIZER = constructor("Optimizer");
+    private static final MethodHandle OPTIMIZE = method("Optimizer", "optimize", Expression.class, Expression.class,
+            boolean.class);
+    private static final MethodHandle NEW_FUSION = constructor("Fusion");
+    private static final MethodHandle FUSE = method("Fusion", "fuse", Expression.class, Expression.class);
+    private static final MethodHandle NEW_INTERPRETER = constructor("Interpreter", boolean.class);
+    private static final MethodHandle EVAL = method("Interpreter", "eval", Expression.class, Expression.class,
+            Frame.class);
+    private static final MethodHandle NEW_BLOCK_READER = constructor("BlockReader", Reader.class);
+    private static final MethodHandle NEXT_BLOCK = method("BlockReader", "next", String.class);
+
+    private final Object lexer, parser, resolver, typer, optimizer, fusion, interpreter;
+    private final Frame env = new Frame(null, new Expression[16]);
+
+    // 'jit' lets the interpreter compile hot functions to JVM bytecode, as it does unless run with --no-jit
+    Pipeline(boolean jit) throws Throwable {
+        lexer = NEW_LEXER.invoke();
+        parser = NEW_PARSER.invoke();
+        resolver = NEW_RESOLVER.invoke();
+        typer = NEW_TYPER.invoke();
+        optimizer = NEW_OPTIMIZER.invoke();
+        fusion = NEW_FUSION.invoke();
+        interpreter = NEW_INTERPRETER.invoke(jit);
+    }
+
+    // the tokens of 'source', which the next call overwrites
+    Tokens lex(CharSequence source) throws Throwable {
+        SET_SOURCE.invokeExact(lexer, source);
+        TOKENIZE.invokeExact(lexer);
+        return (Tokens) TOKENS.invokeExact(lexer);
+    }
+
+    // the tokens of 'block' in a lexer of their own, so that they are kept
+    static Tokens tokens(CharSequence block) throws Throwable {
+        Object lexer = NEW_LEXER.invoke();
+        SET_SOURCE.invokeExact(lexer, block);
+        TOKENIZE.invokeExact(lexer);
+        return (Tokens) TOKENS.invokeExact(lexer);
+    }
+
+    Expression parse(Tokens tokens) throws Throwable {
+        SET_TOKENS.invokeExact(parser, tokens);
+        PARSE.invokeExact(parser);
+        return (Expression) TREE.invokeExact(parser);
+    }
+
+    // the block parsed, resolved, type checked and optimized, ready to evaluate
+    Expression compile(CharSequence block) throws Throwable {
+        Expression e = parse(lex(block));
+        RESOLVE.invokeExact(resolver, e);
+        INFER.invokeExact(typer, e);
+        return (Expression) FUSE.invokeExact(fusion, (Expression) OPTIMIZE.invokeExact(optimizer, e, true));
+    }
+
+    Expression eval(Expression e) throws Throwable {
+        return (Expression) EVAL.invokeExact(interpreter, e, env);
+    }
+
+    // compiles and evaluates a block, as a declaration whose value later blocks use
+    Expression load(CharSequence block) throws Throwable {
+        return eval(compile(block));
+    }
+
+    // test/test.ml, the program the lexer and parser benchmarks read
+    static String program() throws IOException {
+        try (InputStream in = Pipeline.class.getResourceAsStream("/test.ml")) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // the blocks of a program, each ending with its ';;'
+    static List<String> blocks(String program) throws Throwable {
+        Object reader = NEW_BLOCK_READER.invoke(new StringReader(program));
+        List<String> blocks = new ArrayList<>();
+        while (true) {
+            String block = (String) NEXT_BLOCK.invoke(reader);
+            if (block == null)
+                return blocks;
+            blocks.add(block);
+        }
+    }
+
+    private static MethodHandle constructor(String name, Class<?>... params) {
+        try {
+            Class<?> type = Class.forName(name);
+            return MethodHandles.publicLookup().findConstructor(type, MethodType.methodType(void.class, params))
+                    .asType(MethodType.methodType(Object.class, params));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // a method of a default-package class, taking its receiver as an Object
+    private static MethodHandle method(String name, String method, Class<?> result, Class<?>... params) {
+        try {
+            Class<?> type = Class.forName(name);
+            MethodHandle handle = MethodHandles.publicLookup().findVirtual(type, method,
+                    MethodType.methodType(result, params));
+            return handle.asType(handle.type().changeParameterType(0, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
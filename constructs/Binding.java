@@ -1,11 +0,0 @@
-package constructs;
-
-public class Binding {
-    public Identifier var;
-    public Expression value;
-
-    public Binding(Identifier var, Expression value) {
-        this.var = var;
-        this.value = value;
-    }
-}
\ No newline at end of file
@@ -0,0 +1,27 @@
+package constructs;
+
+import java.util.Arrays;
+
+public class Frame {
+    public final Frame parent;
+    public Expression[] slots;
+
+    public Frame(Frame parent, Expression[] slots) {
+        this.parent = parent;
+        this.slots = slots;
+    }
+
+    public Expression get(int depth, int slot) {
+        Frame frame = this;
+        for (int i = 0; i < depth; i++)
+            frame = frame.parent;
+        return frame.slots[slot];
+    }
+
+    // only the global frame grows, and every chain shares it, so the new array is seen everywhere
+    public void set(int slot, Expression value) {
+        if (slot >= slots.length)
+            slots = Arrays.copyOf(slots, Math.max(16, 2 * slot));
+        slots[slot] = value;
+    }
+}
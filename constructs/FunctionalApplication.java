@@ -5,4 +5,7 @@ import java.util.List;
 public class FunctionalApplication implements Expression {
     public Expression iden;
     public List<Expression> actualParams;
+    // inline cache of the evaluators: the body of the function last called here, already checked to take as many
+    // arguments as given, so that calling it again skips the check
+    public Expression callee;
 }
\ No newline at end of file
@@ -1,12 +1,18 @@
 package constructs;
 
 public class Identifier implements Expression {
-    public String value;
+    // interned, so that the Resolver compares names by reference
+    public final String value;
+    // lexical address filled in by the Resolver: frames to walk up and slot inside that frame
+    public int depth = -1, slot = -1;
 
-    public Identifier() {
+    public Identifier(String value) {
+        this.value = intern(value);
     }
 
-    public Identifier(String value) {
-        this.value = value;
+    // the String shared by all the names equal to 'name', from the JVM's string table, which is safe to use from the
+    // threads that parse blocks and drops the names nothing refers to any more
+    public static String intern(String name) {
+        return name.intern();
     }
 }
\ No newline at end of file
@@ -2,4 +2,6 @@ package constructs;
 
 public class Ifthenelse implements Expression {
     public Expression guard, then, els;
+    // set when type inference has found the guard to be a boolean
+    public boolean typed;
 }
\ No newline at end of file
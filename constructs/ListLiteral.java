@@ -0,0 +1,11 @@
+package constructs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// a list written in the program, whose elements are evaluated into a new values.Lis every time it runs
+public class ListLiteral implements Expression {
+    public List<Expression> elements = new ArrayList<>();
+    // set when type inference has found all the elements to be of the same type
+    public boolean typed;
+}
@@ -3,4 +3,6 @@ package constructs;
 public class ListOperation implements Expression {
     public Symbol op;
     public Expression arg1, arg2, list;
+    // set when type inference has found the operands to be of the types the operation takes
+    public boolean typed;
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package constructs;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// The operators of the language. The Parser resolves the text of every operator to one of these once, and the
+// evaluators dispatch on it instead of comparing strings. List.<op> and Seq.<op> of the same name share a constant.
+public enum Operator {
+    ADD("+"), SUB("-"), MUL("*"), DIV("/"), AND("&"), OR("|"), GT(">"), LT("<"), GE(">="), LE("<="), MOD("%"),
+    XOR("^"), EQ("=="), NE("!="), NOT("!"),
+    HD("hd"), TL("tl"), IS_EMPTY("isEmpty"), LENGTH("length"), REV("rev"), CONS("cons"), APPEND("append"),
+    MAP("map"), FILTER("filter"), EXISTS("exists"), FOR_ALL("forAll"), FOLD("fold"),
+    RANGE("range"), OF_LIST("ofList"), TO_LIST("toList"), TAKE("take");
+
+    private static final Map<String, Operator> BY_TEXT = new HashMap<>();
+
+    static {
+        for (Operator op : values())
+            BY_TEXT.put(op.text, op);
+    }
+
+    public final String text;
+
+    Operator(String text) {
+        this.text = text;
+    }
+
+    // the operator written 'text', or null
+    public static Operator of(String text) {
+        return BY_TEXT.get(text);
+    }
+}
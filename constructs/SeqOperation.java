@@ -0,0 +1,10 @@
+package constructs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// an operation on lazy sequences, Seq.<op> followed by its operands, which are evaluated from left to right
+public class SeqOperation implements Expression {
+    public Symbol op;
+    public List<Expression> args = new ArrayList<>();
+}
@@ -2,11 +2,14 @@ package constructs;
 
 public class Symbol implements Expression {
     public String value;
+    // the operator, which the evaluators dispatch on
+    public Operator code;
 
     public Symbol() {
     }
 
-    public Symbol(String value) {
-        this.value = value;
+    public Symbol(Operator code) {
+        this.value = code.text;
+        this.code = code;
     }
 }
\ No newline at end of file
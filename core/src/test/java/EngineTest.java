@@ -0,0 +1,83 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import constructs.Expression;
+import exceptions.NoBindingException;
+import exceptions.TypeMismatchException;
+import exceptions.WrongSyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import values.Bool;
+import values.Int;
+import values.Lis;
+
+class EngineTest {
+    private static final String PRELUDE = """
+            let rec fib n = if (n < 2) then n else ((fib (n - 1)) + (fib (n - 2))) ;;
+            let square = function x -> (x * x) ;;
+            let add = function x acc -> (acc + x) ;;
+            """;
+
+    @Test
+    void runsScriptsWithArguments() throws Exception {
+        Engine engine = new Engine(PRELUDE);
+        CompiledScript script = engine.compile("let y = (x + 1) ;; ((fib y) + (square x)) ;;", "x");
+        assertEquals(Int.of(13 + 36), script.eval(Int.of(6)));
+        assertEquals(List.of("x"), script.parameters());
+        assertSame(script, engine.compile("let y = (x + 1) ;; ((fib y) + (square x)) ;;", "x"));
+    }
+
+    @Test
+    void keepsDeclarationsToOneRun() throws Exception {
+        Engine engine = new Engine(PRELUDE);
+        CompiledScript declares = engine.compile("let z = (x * 2) ;; z ;;", "x");
+        assertEquals(Int.of(8), declares.eval(Int.of(4)));
+        assertEquals(Int.of(14), declares.eval(Int.of(7)));
+        assertThrows(NoBindingException.class, () -> engine.compile("z ;;"));
+    }
+
+    @Test
+    void checksArguments() throws Exception {
+        Engine engine = new Engine(PRELUDE);
+        CompiledScript script = engine.compile("(square x) ;;", "x");
+        assertThrows(TypeMismatchException.class, () -> script.eval(Bool.TRUE));
+        assertThrows(WrongSyntaxException.class, () -> script.eval());
+        CompiledScript lists = engine.compile("(List.fold add 0 xs) ;;", "xs");
+        assertEquals(Int.of(6), lists.eval(Lis.of(List.of(Int.of(1), Int.of(2), Int.of(3)), null)));
+    }
+
+    @Test
+    void printsResultsWithoutValue() throws Exception {
+        Engine engine = new Engine(PRELUDE);
+        CompiledScript script = engine.compile("(List.fold add 0 xs) ;;", "xs");
+        Expression result = script.eval(Lis.of(List.of(), null));
+        assertNull(result);
+        assertEquals("null", engine.printValue(result));
+        assertEquals("[1,2]", engine.printValue(engine.compile("[1,2] ;;").eval()));
+    }
+
+    // one script run from many virtual threads at once, calling prelude functions often enough to be compiled by
+    // the JIT while other runs are calling them
+    @Test
+    void runsOneScriptFromManyThreads() throws Exception {
+        Engine engine = new Engine(PRELUDE);
+        CompiledScript script = engine.compile("let y = (fib n) ;; (y + (square n)) ;;", "n");
+        int runs = 2000;
+        List<Future<Expression>> results = new ArrayList<>(runs);
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < runs; i++) {
+                Int n = Int.of(i % 16);
+                results.add(threads.submit(() -> script.eval(n)));
+            }
+            for (int i = 0; i < runs; i++)
+                assertEquals(Int.of(fib(i % 16) + (i % 16) * (i % 16)), results.get(i).get(), "run " + i);
+        }
+    }
+
+    private static int fib(int n) {
+        return n < 2 ? n : fib(n - 1) + fib(n - 2);
+    }
+}
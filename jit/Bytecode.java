@@ -0,0 +1,194 @@
+package jit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Writes a final class with a single public static method. Class files are version 49, which the JVM
+// verifies by type inference, so no stack map frames have to be computed.
+class Bytecode {
+    static final int ICONST_0 = 0x03, ICONST_1 = 0x04, BIPUSH = 0x10, SIPUSH = 0x11, LDC_W = 0x13, ILOAD = 0x15,
+            ISTORE = 0x36, IADD = 0x60, ISUB = 0x64, IMUL = 0x68, IREM = 0x70, IAND = 0x7e, IOR = 0x80, IXOR = 0x82,
+            IFEQ = 0x99, IF_ICMPEQ = 0x9f, IF_ICMPNE = 0xa0, IF_ICMPLT = 0xa1, IF_ICMPGE = 0xa2, IF_ICMPGT = 0xa3,
+            IF_ICMPLE = 0xa4, GOTO = 0xa7, IRETURN = 0xac, INVOKESTATIC = 0xb8;
+
+    static class Label {
+        private int position = -1;
+        private final List<int[]> jumps = new ArrayList<>();
+    }
+
+    private final List<byte[]> pool = new ArrayList<>();
+    private final List<Label> labels = new ArrayList<>();
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private byte[] code = new byte[64];
+    private int length, stack, maxStack;
+
+    Label label() {
+        Label label = new Label();
+        labels.add(label);
+        return label;
+    }
+
+    int stack() {
+        return stack;
+    }
+
+    // sets the operand stack depth at a branch target
+    void stack(int depth) {
+        stack = depth;
+    }
+
+    void op(int opcode, int effect) {
+        put(opcode);
+        stack += effect;
+        maxStack = Math.max(maxStack, stack);
+    }
+
+    void push(int value) {
+        if (value >= -1 && value <= 5)
+            put(ICONST_0 + value);
+        else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            put(BIPUSH);
+            put(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            put(SIPUSH);
+            putShort(value);
+        } else {
+            put(LDC_W);
+            putShort(constant("I" + value, 3, value));
+        }
+        maxStack = Math.max(maxStack, ++stack);
+    }
+
+    void load(int local) {
+        put(ILOAD);
+        put(local);
+        maxStack = Math.max(maxStack, ++stack);
+    }
+
+    void store(int local) {
+        put(ISTORE);
+        put(local);
+        stack--;
+    }
+
+    void invoke(String owner, String name, String descriptor, int arity) {
+        put(INVOKESTATIC);
+        putShort(methodRef(owner, name, descriptor));
+        stack += 1 - arity;
+        maxStack = Math.max(maxStack, stack);
+    }
+
+    void jump(int opcode, Label target) {
+        target.jumps.add(new int[] { length, length + 1 });
+        put(opcode);
+        putShort(0);
+        stack -= opcode == GOTO ? 0 : opcode == IFEQ ? 1 : 2;
+    }
+
+    void mark(Label label) {
+        label.position = length;
+    }
+
+    byte[] toClass(String name, String method, String descriptor, int maxLocals) throws IOException {
+        patch();
+        int thisClass = classRef(name), superClass = classRef("java/lang/Object");
+        int methodName = utf8(method), methodDescriptor = utf8(descriptor), codeName = utf8("Code");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0);
+        out.writeShort(49);
+        out.writeShort(pool.size() + 1);
+        for (byte[] entry : pool)
+            out.write(entry);
+        out.writeShort(0x31); // public final super
+        out.writeShort(thisClass);
+        out.writeShort(superClass);
+        out.writeShort(0); // interfaces
+        out.writeShort(0); // fields
+        out.writeShort(1); // methods
+        out.writeShort(0x09); // public static
+        out.writeShort(methodName);
+        out.writeShort(methodDescriptor);
+        out.writeShort(1);
+        out.writeShort(codeName);
+        out.writeInt(12 + length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(length);
+        out.write(code, 0, length);
+        out.writeShort(0); // exception table
+        out.writeShort(0); // code attributes
+        out.writeShort(0); // class attributes
+        return bytes.toByteArray();
+    }
+
+    private void patch() {
+        for (Label label : labels)
+            for (int[] jump : label.jumps) {
+                int offset = label.position - jump[0];
+                code[jump[1]] = (byte) (offset >> 8);
+                code[jump[1] + 1] = (byte) offset;
+            }
+    }
+
+    private int methodRef(String owner, String name, String descriptor) {
+        int ownerIndex = classRef(owner);
+        int nameIndex = utf8(name), descriptorIndex = utf8(descriptor);
+        String key = "N" + name + descriptor;
+        Integer nameAndType = indexes.get(key);
+        if (nameAndType == null)
+            nameAndType = entry(key, new byte[] { 12, (byte) (nameIndex >> 8), (byte) nameIndex,
+                    (byte) (descriptorIndex >> 8), (byte) descriptorIndex });
+        return entry("M" + owner + "." + name + descriptor, new byte[] { 10, (byte) (ownerIndex >> 8),
+                (byte) ownerIndex, (byte) (nameAndType >> 8), (byte) (int) nameAndType });
+    }
+
+    private int classRef(String name) {
+        int nameIndex = utf8(name);
+        return entry("C" + name, new byte[] { 7, (byte) (nameIndex >> 8), (byte) nameIndex });
+    }
+
+    private int utf8(String value) {
+        byte[] chars = value.getBytes(StandardCharsets.UTF_8);
+        byte[] entry = new byte[3 + chars.length];
+        entry[0] = 1;
+        entry[1] = (byte) (chars.length >> 8);
+        entry[2] = (byte) chars.length;
+        System.arraycopy(chars, 0, entry, 3, chars.length);
+        return entry("U" + value, entry);
+    }
+
+    private int constant(String key, int tag, int value) {
+        return entry(key, new byte[] { (byte) tag, (byte) (value >> 24), (byte) (value >> 16), (byte) (value >> 8),
+                (byte) value });
+    }
+
+    private int entry(String key, byte[] entry) {
+        Integer index = indexes.get(key);
+        if (index == null) {
+            pool.add(entry);
+            indexes.put(key, index = pool.size());
+        }
+        return index;
+    }
+
+    private void put(int b) {
+        if (length == code.length)
+            code = Arrays.copyOf(code, 2 * length);
+        code[length++] = (byte) b;
+    }
+
+    private void putShort(int s) {
+        put(s >> 8);
+        put(s);
+    }
+}
@@ -0,0 +1,84 @@
+package jit;
+
+import constructs.Expression;
+import exceptions.ZeroDividerException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import values.Bool;
+import values.Int;
+
+public class CompiledFunction {
+    // after this many calls with arguments of unexpected types the code is dropped for good
+    private static final int MAX_DEOPTS = 16;
+    // deopts are counted atomically, as the threads calling the function all run the same code
+    private static final VarHandle DEOPTS;
+
+    static {
+        try {
+            DEOPTS = MethodHandles.lookup().findVarHandle(CompiledFunction.class, "deopts", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final MethodHandle code;
+    private final Kind[] params;
+    private final Kind result;
+    private volatile int deopts;
+
+    CompiledFunction(MethodHandle code, Kind[] params, Kind result) {
+        this.code = code;
+        this.params = params;
+        this.result = result;
+    }
+
+    // Runs the compiled code on the arguments stored in a call frame from 'offset' on. When an argument has
+    // not the type the code was specialized for it returns null, and the caller interprets the call instead.
+    public Expression invoke(Expression[] frame, int offset) throws ZeroDividerException {
+        int[] args = new int[params.length];
+        for (int i = 0; i < params.length; i++) {
+            Expression arg = frame[offset + i];
+            if (params[i] == Kind.INT && arg instanceof Int n)
+                args[i] = n.value;
+            else if (params[i] == Kind.BOOL && arg instanceof Bool b)
+                args[i] = b.value ? 1 : 0;
+            else {
+                DEOPTS.getAndAdd(this, 1);
+                return null;
+            }
+        }
+        int value = invoke(args);
+        return result == Kind.INT ? Int.of(value) : Bool.of(value != 0);
+    }
+
+    // Runs the compiled code on unboxed arguments of the kinds it was specialized for, booleans as 0 and 1, and
+    // returns its unboxed result. 'args' is only read, so a caller can fill the same array for every call.
+    public int invoke(int[] args) throws ZeroDividerException {
+        try {
+            return (int) code.invokeExact(args);
+        } catch (ZeroDividerException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // whether the code takes 'count' integers, as when it is applied to the elements of an integer list
+    public boolean takesInts(int count) {
+        if (params.length != count)
+            return false;
+        for (Kind param : params)
+            if (param != Kind.INT)
+                return false;
+        return true;
+    }
+
+    public boolean returnsBool() {
+        return result == Kind.BOOL;
+    }
+
+    public boolean invalidated() {
+        return deopts > MAX_DEOPTS;
+    }
+}
@@ -0,0 +1,334 @@
+package jit;
+
+import constructs.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import values.*;
+
+// Compiles the body of a hot function into a JVM hidden class working on unboxed ints and booleans.
+// Only bodies made of constants, variables, operators, if, let and calls of the function to itself are
+// compiled, and only when the type of every parameter and subexpression can be inferred; everything else
+// keeps running in the interpreter. Captured variables are constants of the compiled code, since a
+// closure never sees them change. Calls to itself in tail position become jumps.
+public class FunctionCompiler {
+    private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    private static final String SELF = "jit/Compiled", METHOD = "run";
+
+    private static class Unsupported extends Exception {
+        Unsupported() {
+            super(null, null, false, false);
+        }
+    }
+
+    private final List<Expression> params;
+    private final Expression body;
+    private final Frame fenv;
+    // slot of the first parameter in the call frame, which holds a recursive closure itself in slot 0
+    private final int offset;
+    private final Kind[] kinds;
+    private Kind result = Kind.UNKNOWN;
+    private final Map<Let, Kind> letKinds = new IdentityHashMap<>();
+    private final Map<Let, Integer> letLocals = new IdentityHashMap<>();
+    // let expressions enclosing the expression being visited, innermost last
+    private final List<Let> lets = new ArrayList<>();
+    private boolean changed;
+    private Bytecode code;
+    private Bytecode.Label start;
+
+    private FunctionCompiler(List<Expression> params, Expression body, Frame fenv, int offset) {
+        this.params = params;
+        this.body = body;
+        this.fenv = fenv;
+        this.offset = offset;
+        this.kinds = new Kind[params.size()];
+        java.util.Arrays.fill(kinds, Kind.UNKNOWN);
+    }
+
+    // returns null when the function cannot be compiled
+    public static CompiledFunction compile(Closure clo) {
+        return new FunctionCompiler(clo.params, clo.body, clo.fenv, 0).compile();
+    }
+
+    public static CompiledFunction compile(RecursiveClosure rec) {
+        return new FunctionCompiler(rec.params, rec.body, rec.fenv, 1).compile();
+    }
+
+    private CompiledFunction compile() {
+        try {
+            do {
+                changed = false;
+                Kind k = infer(body, result);
+                if (result == Kind.UNKNOWN && k != Kind.UNKNOWN) {
+                    result = k;
+                    changed = true;
+                }
+            } while (changed);
+            if (result == Kind.UNKNOWN || letKinds.containsValue(Kind.UNKNOWN))
+                return null;
+            for (Kind k : kinds)
+                if (k == Kind.UNKNOWN)
+                    return null;
+
+            code = new Bytecode();
+            start = code.label();
+            code.mark(start);
+            emit(body, true);
+            code.op(Bytecode.IRETURN, -1);
+
+            String descriptor = "(" + "I".repeat(kinds.length) + ")I";
+            byte[] bytes = code.toClass(SELF, METHOD, descriptor, kinds.length + letLocals.size());
+            MethodHandles.Lookup hidden = lookup.defineHiddenClass(bytes, true);
+            MethodType type = MethodType.methodType(int.class, java.util.Collections.nCopies(kinds.length, int.class));
+            MethodHandle handle = hidden.findStatic(hidden.lookupClass(), METHOD, type);
+            return new CompiledFunction(handle.asSpreader(int[].class, kinds.length), kinds, result);
+        } catch (Unsupported e) {
+            return null;
+        } catch (ReflectiveOperationException | java.io.IOException | LinkageError e) {
+            return null;
+        }
+    }
+
+    // Returns the kind of e, narrowing unknown parameters, let variables and the result towards 'expected'.
+    // Runs until nothing changes, since a use can fix the kind of a parameter needed by an earlier use.
+    private Kind infer(Expression e, Kind expected) throws Unsupported {
+        switch (e) {
+            case Int _ -> {
+                return expect(Kind.INT, expected);
+            }
+            case Bool _ -> {
+                return expect(Kind.BOOL, expected);
+            }
+            case Identifier id -> {
+                return variable(id, expected);
+            }
+            case BinaryOperation bop -> {
+                switch (bop.op.code) {
+                    case ADD, SUB, MUL, DIV, MOD -> {
+                        infer(bop.e1, Kind.INT);
+                        infer(bop.e2, Kind.INT);
+                        return expect(Kind.INT, expected);
+                    }
+                    case GT, LT, GE, LE -> {
+                        infer(bop.e1, Kind.INT);
+                        infer(bop.e2, Kind.INT);
+                        return expect(Kind.BOOL, expected);
+                    }
+                    case AND, OR -> {
+                        infer(bop.e1, Kind.BOOL);
+                        infer(bop.e2, Kind.BOOL);
+                        return expect(Kind.BOOL, expected);
+                    }
+                    case XOR -> {
+                        return operands(bop, expected);
+                    }
+                    case EQ, NE -> {
+                        operands(bop, Kind.UNKNOWN);
+                        return expect(Kind.BOOL, expected);
+                    }
+                    default -> throw new Unsupported();
+                }
+            }
+            case UnaryOperation uop -> {
+                if (uop.op.code != Operator.NOT)
+                    throw new Unsupported();
+                infer(uop.arg, Kind.BOOL);
+                return expect(Kind.BOOL, expected);
+            }
+            case Ifthenelse ifte -> {
+                infer(ifte.guard, Kind.BOOL);
+                Kind then = infer(ifte.then, expected);
+                Kind els = infer(ifte.els, then == Kind.UNKNOWN ? expected : then);
+                if (then == Kind.UNKNOWN && els != Kind.UNKNOWN)
+                    then = infer(ifte.then, els);
+                return then;
+            }
+            case Let let -> {
+                if (let.body == null)
+                    throw new Unsupported();
+                Kind known = letKinds.getOrDefault(let, Kind.UNKNOWN);
+                Kind k = infer(let.value, known);
+                if (known == Kind.UNKNOWN && k != Kind.UNKNOWN)
+                    changed = true;
+                letKinds.put(let, k);
+                lets.add(let);
+                Kind k2 = infer(let.body, expected);
+                lets.removeLast();
+                return k2;
+            }
+            case FunctionalApplication app -> {
+                if (!self(app.iden) || app.actualParams.size() != kinds.length)
+                    throw new Unsupported();
+                for (int i = 0; i < kinds.length; i++) {
+                    Kind k = infer(app.actualParams.get(i), kinds[i]);
+                    if (kinds[i] == Kind.UNKNOWN && k != Kind.UNKNOWN) {
+                        kinds[i] = k;
+                        changed = true;
+                    }
+                }
+                if (result == Kind.UNKNOWN && expected != Kind.UNKNOWN) {
+                    result = expected;
+                    changed = true;
+                }
+                return expect(result, expected);
+            }
+            default -> throw new Unsupported();
+        }
+    }
+
+    // both operands of ^, == and != have the same kind
+    private Kind operands(BinaryOperation bop, Kind expected) throws Unsupported {
+        Kind k1 = infer(bop.e1, expected);
+        Kind k2 = infer(bop.e2, k1);
+        if (k1 == Kind.UNKNOWN && k2 != Kind.UNKNOWN)
+            k1 = infer(bop.e1, k2);
+        return k1;
+    }
+
+    private Kind variable(Identifier id, Kind expected) throws Unsupported {
+        int depth = id.depth - lets.size();
+        if (depth < 0) {
+            Let let = lets.get(lets.size() - 1 - id.depth);
+            Kind k = letKinds.get(let);
+            if (k == Kind.UNKNOWN && expected != Kind.UNKNOWN) {
+                letKinds.put(let, expected);
+                changed = true;
+            }
+            return expect(k, expected);
+        }
+        if (depth == 0) {
+            int i = id.slot - offset;
+            if (i < 0)
+                throw new Unsupported(); // the recursive closure used as a value
+            if (kinds[i] == Kind.UNKNOWN && expected != Kind.UNKNOWN) {
+                kinds[i] = expected;
+                changed = true;
+            }
+            return expect(kinds[i], expected);
+        }
+        return expect(kindOf(captured(id, depth)), expected);
+    }
+
+    private Kind expect(Kind actual, Kind expected) throws Unsupported {
+        if (actual == Kind.UNKNOWN)
+            return expected;
+        if (expected != Kind.UNKNOWN && actual != expected)
+            throw new Unsupported(); // a type error, left to the interpreter to report
+        return actual;
+    }
+
+    private boolean self(Expression iden) {
+        return offset == 1 && iden instanceof Identifier id && id.depth == lets.size() && id.slot == 0;
+    }
+
+    private Expression captured(Identifier id, int depth) {
+        return fenv.get(depth - 1, id.slot);
+    }
+
+    private Kind kindOf(Expression value) throws Unsupported {
+        if (value instanceof Int)
+            return Kind.INT;
+        if (value instanceof Bool)
+            return Kind.BOOL;
+        throw new Unsupported();
+    }
+
+    // emits e leaving its value on the operand stack; returns false when e ended with a jump (a tail call)
+    private boolean emit(Expression e, boolean tail) throws Unsupported {
+        switch (e) {
+            case Int i -> code.push(i.value);
+            case Bool b -> code.push(b.value ? 1 : 0);
+            case Identifier id -> {
+                int depth = id.depth - lets.size();
+                if (depth < 0)
+                    code.load(letLocals.get(lets.get(lets.size() - 1 - id.depth)));
+                else if (depth == 0)
+                    code.load(id.slot - offset);
+                else if (captured(id, depth) instanceof Int n)
+                    code.push(n.value);
+                else
+                    code.push(((Bool) captured(id, depth)).value ? 1 : 0);
+            }
+            case BinaryOperation bop -> {
+                emit(bop.e1, false);
+                emit(bop.e2, false);
+                switch (bop.op.code) {
+                    case ADD -> code.op(Bytecode.IADD, -1);
+                    case SUB -> code.op(Bytecode.ISUB, -1);
+                    case MUL -> code.op(Bytecode.IMUL, -1);
+                    case DIV -> code.invoke("jit/Intrinsics", "divide", "(II)I", 2);
+                    case MOD -> code.op(Bytecode.IREM, -1);
+                    case AND -> code.op(Bytecode.IAND, -1);
+                    case OR -> code.op(Bytecode.IOR, -1);
+                    case XOR -> code.op(Bytecode.IXOR, -1);
+                    case GT -> compare(Bytecode.IF_ICMPGT);
+                    case LT -> compare(Bytecode.IF_ICMPLT);
+                    case GE -> compare(Bytecode.IF_ICMPGE);
+                    case LE -> compare(Bytecode.IF_ICMPLE);
+                    case EQ -> compare(Bytecode.IF_ICMPEQ);
+                    case NE -> compare(Bytecode.IF_ICMPNE);
+                    default -> throw new Unsupported();
+                }
+            }
+            case UnaryOperation uop -> {
+                emit(uop.arg, false);
+                code.push(1);
+                code.op(Bytecode.IXOR, -1);
+            }
+            case Ifthenelse ifte -> {
+                Bytecode.Label els = code.label(), end = code.label();
+                emit(ifte.guard, false);
+                code.jump(Bytecode.IFEQ, els);
+                int depth = code.stack();
+                boolean thenCompletes = emit(ifte.then, tail);
+                if (thenCompletes)
+                    code.jump(Bytecode.GOTO, end);
+                code.mark(els);
+                code.stack(depth);
+                boolean elsCompletes = emit(ifte.els, tail);
+                code.mark(end);
+                code.stack(depth + 1);
+                return thenCompletes || elsCompletes;
+            }
+            case Let let -> {
+                emit(let.value, false);
+                int local = kinds.length + letLocals.size();
+                letLocals.put(let, local);
+                code.store(local);
+                lets.add(let);
+                boolean completes = emit(let.body, tail);
+                lets.removeLast();
+                return completes;
+            }
+            case FunctionalApplication app -> {
+                for (Expression arg : app.actualParams)
+                    emit(arg, false);
+                if (!tail) {
+                    code.invoke(SELF, METHOD, "(" + "I".repeat(kinds.length) + ")I", kinds.length);
+                    return true;
+                }
+                for (int i = kinds.length - 1; i >= 0; i--)
+                    code.store(i);
+                code.jump(Bytecode.GOTO, start);
+                return false;
+            }
+            default -> throw new Unsupported();
+        }
+        return true;
+    }
+
+    private void compare(int opcode) {
+        Bytecode.Label yes = code.label(), end = code.label();
+        code.jump(opcode, yes);
+        code.push(0);
+        code.jump(Bytecode.GOTO, end);
+        code.mark(yes);
+        code.stack(code.stack() - 1);
+        code.push(1);
+        code.mark(end);
+    }
+}
@@ -0,0 +1,13 @@
+package jit;
+
+import exceptions.ZeroDividerException;
+
+// helpers called from compiled code where a single JVM instruction does not give MiniCaml semantics
+public class Intrinsics {
+
+    public static int divide(int dividend, int divisor) throws ZeroDividerException {
+        if (divisor == 0)
+            throw new ZeroDividerException("cannot divide by zero");
+        return dividend / divisor;
+    }
+}
@@ -0,0 +1,8 @@
+package jit;
+
+// the JVM representation of a MiniCaml value in compiled code; booleans are ints 0 and 1
+enum Kind {
+    UNKNOWN,
+    INT,
+    BOOL,
+}
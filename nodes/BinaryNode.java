@@ -0,0 +1,254 @@
+package nodes;
+
+import constructs.Expression;
+import constructs.Frame;
+import exceptions.*;
+import runtime.Operations;
+import values.Bool;
+import values.Int;
+
+// every operator evaluates both operands first, then checks their types and applies itself
+public abstract class BinaryNode extends Node {
+    protected final Node left, right;
+
+    protected BinaryNode(Node left, Node right) {
+        this.left = left;
+        this.right = right;
+    }
+
+    static int integer(Expression e) throws TypeMismatchException {
+        return Operations.integer(e);
+    }
+
+    static boolean bool(Expression e) throws TypeMismatchException {
+        return Operations.bool(e);
+    }
+
+    public static class IntAdd extends BinaryNode {
+        public IntAdd(Node left, Node right) {
+            super(left, right);
+        }
+
+        @Override
+        public Expression execute(Frame frame)
+                throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+                WrongSyntaxException {
+            Expression e1 = left.execute(frame), e2 = right.execute(frame);
+            int i1 = integer(e1), i2 = integer(e2);
+            return Int.of(i1 + i2);
+        }
+    }
+
+    public static class IntSub extends BinaryNode {
+        public IntSub(Node left, Node right) {
+            super(left, right);
+        }
+
+        @Override
+        public Expression execute(Frame frame)
+                throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+                WrongSyntaxException {
+            Expression e1 = left.execute(frame), e2 = right.execute(frame);
+            int i1 = integer(e1), i2 = integer(e2);
+            return Int.of(i1 - i2);
+        }
+    }
+
+    public static class IntMul extends BinaryNode {
+        public IntMul(Node left, Node right) {
+            super(left, right);
+        }
+
+        @Override
+        public Expression execute(Frame frame)
+                throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+                WrongSyntaxException {
+            Expression e1 = left.execute(frame), e2 = right.execute(frame);
+            int i1 = integer(e1), i2 = integer(e2);
+            return Int.of(i1 * i2);
+        }
+    }
+
+    public static class IntDiv extends BinaryNode {
+        public IntDiv(Node left, Node right) {
+            super(left, right);
+        }
+
+        @Override
+        public Expression execute(Frame frame)
+                throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+                WrongSyntaxException {
+            Expression e1 = left.execute(frame), e2 = right.execute(frame);
+            int i1 = integer(e1), i2 = integer(e2);
+            if (i2 == 0)
+                throw new ZeroDividerException("cannot divide by zero");
+            return Int.of(i1 / i2);
+        }
+    }
+
+    public static class IntMod extends BinaryNode {
+        public IntMod(Node left, Node right) {
+            super(left, right);
+        }
+
+        @Override
+        public Expression execute(Frame frame)
+                throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+                WrongSyntaxException {
+            Expression e1 = left.execute(frame), e2 = right.execute(frame);
+            int i1 = integer(e1), i2 = integer(e2);
+            return Int.of(i1 % i2);
+        }
+    }
+
+    public static class IntGt extends BinaryNode {
+        public IntGt(Node left, Node right) {
+            super(left, right);
+        }
+
+        @Override
+        public Expression execute(Frame frame)
+                throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+                WrongSyntaxException {
+            Expression e1 = left.execute(frame), e2 = right.execute(frame);
+            int i1 = integer(e1), i2 = integer(e2);
+            return Bool.of(i1 > i2);
+        }
+    }
+
+    public static class IntLt extends BinaryNode {
+        public IntLt(Node left, Node right) {
+            super(left, right);
+        }
+
+        @Override
+        public Expression execute(Frame frame)
+                throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+                WrongSyntaxException {
+            Expression e1 = left.execute(frame), e2 = right.execute(frame);
+            int i1 = integer(e1), i2 = integer(e2);
+            return Bool.of(i1 < i2);
+        }
+    }
+
+    public static class IntGe extends BinaryNode {
+        public IntGe(Node left, Node right) {
+            super(left, right);
+        }
+
+        @Override
+        public Expression execute(Frame frame)
+                throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+                WrongSyntaxException {
+            Expression e1 = left.execute(frame), e2 = right.execute(frame);
+            int i1 = integer(e1), i2 = integer(e2);
+            return Bool.of(i1 >= i2);
+        }
+    }
+
+    public static class IntLe extends BinaryNode {
+        public IntLe(Node left, Node right) {
+            super(left, right);
+        }
+
+        @Override
+        public Expression execute(Frame frame)
+                throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+                WrongSyntaxException {
+            Expression e1 = left.execute(frame), e2 = right.execute(frame);
+            int i1 = integer(e1), i2 = integer(e2);
+            return Bool.of(i1 <= i2);
+        }
+    }
+
+    public static class BoolAnd extends BinaryNode {
+        public BoolAnd(Node left, Node right) {
+            super(left, right);
+        }
+
+        @Override
+        public Expression execute(Frame frame)
+                throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+                WrongSyntaxException {
+            Expression e1 = left.execute(frame), e2 = right.execute(frame);
+            boolean b1 = bool(e1), b2 = bool(e2);
+            return Bool.of(b1 && b2);
+        }
+    }
+
+    public static class BoolOr extends BinaryNode {
+        public BoolOr(Node left, Node right) {
+            super(left, right);
+        }
+
+        @Override
+        public Expression execute(Frame frame)
+                throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+                WrongSyntaxException {
+            Expression e1 = left.execute(frame), e2 = right.execute(frame);
+            boolean b1 = bool(e1), b2 = bool(e2);
+            return Bool.of(b1 || b2);
+        }
+    }
+
+    // ^, == and != accept two Int or two Bool
+    public static class Xor extends BinaryNode {
+        public Xor(Node left, Node right) {
+            super(left, right);
+        }
+
+        @Override
+        public Expression execute(Frame frame)
+                throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+                WrongSyntaxException {
+            Expression e1 = left.execute(frame), e2 = right.execute(frame);
+            Operations.typecheck(e2, e1);
+            if (e1 instanceof Bool b1 && e2 instanceof Bool b2)
+                return Bool.of(b1.value ^ b2.value);
+            if (e1 instanceof Int i1 && e2 instanceof Int i2)
+                return Int.of(i1.value ^ i2.value);
+            throw new TypeMismatchException(
+                    "unexpected type '" + e1.getClass().getSimpleName() + "' passed to operation ^");
+        }
+    }
+
+    public static class Equal extends BinaryNode {
+        public Equal(Node left, Node right) {
+            super(left, right);
+        }
+
+        @Override
+        public Expression execute(Frame frame)
+                throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+                WrongSyntaxException {
+            Expression e1 = left.execute(frame), e2 = right.execute(frame);
+            Operations.typecheck(e2, e1);
+            if (e1 instanceof Bool b1 && e2 instanceof Bool b2)
+                return Bool.of(b1.value == b2.value);
+            if (e1 instanceof Int i1 && e2 instanceof Int i2)
+                return Bool.of(i1.value == i2.value);
+            throw new TypeMismatchException(
+                    "unexpected type '" + e1.getClass().getSimpleName() + "' passed to operation ==");
+        }
+    }
+
+    public static class NotEqual extends BinaryNode {
+        public NotEqual(Node left, Node right) {
+            super(left, right);
+        }
+
+        @Override
+        public Expression execute(Frame frame)
+                throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+                WrongSyntaxException {
+            Expression e1 = left.execute(frame), e2 = right.execute(frame);
+            Operations.typecheck(e2, e1);
+            if (e1 instanceof Bool b1 && e2 instanceof Bool b2)
+                return Bool.of(b1.value != b2.value);
+            if (e1 instanceof Int i1 && e2 instanceof Int i2)
+                return Bool.of(i1.value != i2.value);
+            throw new TypeMismatchException(
+                    "unexpected type '" + e1.getClass().getSimpleName() + "' passed to operation !=");
+        }
+    }
+}
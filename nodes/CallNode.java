@@ -0,0 +1,69 @@
+package nodes;
+
+import constructs.Expression;
+import constructs.Frame;
+import exceptions.*;
+import values.Closure;
+import values.RecursiveClosure;
+
+public class CallNode extends Node {
+    private final Node function;
+    private final Node[] args;
+    private final boolean tail;
+
+    public CallNode(Node function, Node[] args, boolean tail) {
+        this.function = function;
+        this.args = args;
+        this.tail = tail;
+    }
+
+    @Override
+    public Expression execute(Frame frame)
+            throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+            WrongSyntaxException {
+        Expression callee = function.execute(frame);
+        Frame activation = activation(callee, args.length);
+        int offset = activation.slots.length - args.length;
+        for (int i = 0; i < args.length; i++)
+            activation.slots[offset + i] = args[i].execute(frame);
+        if (tail)
+            return new TailCall(body(callee), activation);
+        return trampoline(body(callee).execute(activation));
+    }
+
+    // applies a functional value to already evaluated arguments, as the higher order list operations do
+    public static Expression invoke(Expression callee, Expression... values)
+            throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+            WrongSyntaxException {
+        Frame activation = activation(callee, values.length);
+        System.arraycopy(values, 0, activation.slots, activation.slots.length - values.length, values.length);
+        return trampoline(body(callee).execute(activation));
+    }
+
+    // checks the callee and allocates its frame, which holds the closure itself in slot 0 when it is recursive
+    private static Frame activation(Expression callee, int arity) throws TypeMismatchException, WrongSyntaxException {
+        switch (callee) {
+            case Closure clo -> {
+                if (arity != clo.params.size())
+                    throw new WrongSyntaxException(
+                            "functional application parameters do not match the function signature");
+                return new Frame(clo.fenv, new Expression[arity]);
+            }
+            case RecursiveClosure rec -> {
+                if (arity != rec.params.size())
+                    throw new WrongSyntaxException(
+                            "functional application parameters do not match the function signature");
+                Expression[] slots = new Expression[arity + 1];
+                slots[0] = rec;
+                return new Frame(rec.fenv, slots);
+            }
+            default -> throw new TypeMismatchException("not a functional value passed");
+        }
+    }
+
+    private static Node body(Expression callee) {
+        if (callee instanceof Closure clo)
+            return (Node) clo.body;
+        return (Node) ((RecursiveClosure) callee).body;
+    }
+}
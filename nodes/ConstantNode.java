@@ -0,0 +1,17 @@
+package nodes;
+
+import constructs.Expression;
+import constructs.Frame;
+
+public class ConstantNode extends Node {
+    private final Expression value;
+
+    public ConstantNode(Expression value) {
+        this.value = value;
+    }
+
+    @Override
+    public Expression execute(Frame frame) {
+        return value;
+    }
+}
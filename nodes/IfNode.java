@@ -0,0 +1,28 @@
+package nodes;
+
+import constructs.Expression;
+import constructs.Frame;
+import exceptions.*;
+import runtime.Operations;
+import values.Bool;
+
+public class IfNode extends Node {
+    private final Node guard, then, els;
+
+    public IfNode(Node guard, Node then, Node els) {
+        this.guard = guard;
+        this.then = then;
+        this.els = els;
+    }
+
+    @Override
+    public Expression execute(Frame frame)
+            throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+            WrongSyntaxException {
+        Expression value = guard.execute(frame);
+        if (Operations.bool(value))
+            return then.execute(frame);
+        else
+            return els.execute(frame);
+    }
+}
@@ -0,0 +1,21 @@
+package nodes;
+
+import constructs.Expression;
+import constructs.Frame;
+import java.util.List;
+import values.Closure;
+
+public class LambdaNode extends Node {
+    private final List<Expression> params;
+    private final Node body;
+
+    public LambdaNode(List<Expression> params, Node body) {
+        this.params = params;
+        this.body = body;
+    }
+
+    @Override
+    public Expression execute(Frame frame) {
+        return new Closure(params, body, frame);
+    }
+}
@@ -0,0 +1,36 @@
+package nodes;
+
+import constructs.Expression;
+import constructs.Frame;
+import exceptions.*;
+
+public class LetNode extends Node {
+    private final Node value, body;
+    // slot in the global frame for a top-level declaration without body, -1 otherwise
+    private final int global;
+
+    public LetNode(Node value, Node body, int global) {
+        this.value = value;
+        this.body = body;
+        this.global = global;
+    }
+
+    @Override
+    public Expression execute(Frame frame)
+            throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+            WrongSyntaxException {
+        Expression bound = value.execute(frame);
+        if (body != null)
+            return body.execute(new Frame(frame, new Expression[] { bound }));
+        define(frame, global, bound);
+        return bound;
+    }
+
+    static void define(Frame frame, int global, Expression value) {
+        if (global < 0)
+            return;
+        while (frame.parent != null)
+            frame = frame.parent;
+        frame.set(global, value);
+    }
+}
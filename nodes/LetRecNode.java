@@ -0,0 +1,34 @@
+package nodes;
+
+import constructs.Expression;
+import constructs.Frame;
+import constructs.Identifier;
+import exceptions.*;
+import java.util.List;
+import values.RecursiveClosure;
+
+public class LetRecNode extends Node {
+    private final Identifier name;
+    private final List<Expression> params;
+    private final Node fbody, letbody;
+    private final int global;
+
+    public LetRecNode(Identifier name, List<Expression> params, Node fbody, Node letbody, int global) {
+        this.name = name;
+        this.params = params;
+        this.fbody = fbody;
+        this.letbody = letbody;
+        this.global = global;
+    }
+
+    @Override
+    public Expression execute(Frame frame)
+            throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+            WrongSyntaxException {
+        RecursiveClosure closure = new RecursiveClosure(name, params, fbody, frame);
+        if (letbody != null)
+            return letbody.execute(new Frame(frame, new Expression[] { closure }));
+        LetNode.define(frame, global, closure);
+        return closure;
+    }
+}
@@ -0,0 +1,38 @@
+package nodes;
+
+import constructs.Expression;
+import constructs.Frame;
+import exceptions.*;
+import java.util.ArrayList;
+import java.util.List;
+import runtime.Operations;
+import values.Lis;
+
+// a list literal, building a new list every time it runs; the elements are checked to be of the same type
+// unless type inference has found them to be
+public class ListNode extends Node {
+    private final Node[] elements;
+    private final boolean checked;
+
+    public ListNode(Node[] elements, boolean checked) {
+        this.elements = elements;
+        this.checked = checked;
+    }
+
+    @Override
+    public Expression execute(Frame frame)
+            throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+            WrongSyntaxException {
+        List<Expression> values = new ArrayList<>(elements.length);
+        Expression type = null;
+        for (Node node : elements) {
+            Expression element = node.execute(frame);
+            if (type == null)
+                type = Operations.elementType(element);
+            if (checked)
+                Operations.typecheck(element, type);
+            values.add(element);
+        }
+        return Lis.of(values, type);
+    }
+}
@@ -0,0 +1,256 @@
+package nodes;
+
+import constructs.Expression;
+import constructs.Frame;
+import exceptions.*;
+import java.util.ArrayList;
+import java.util.List;
+import runtime.Operations;
+import values.Bool;
+import values.Lis;
+
+// every list operation evaluates its list first; the higher order ones evaluate the function once,
+// and only when the list is not empty; exists and forAll stop at the first element that decides the result
+public abstract class ListOperationNode extends Node {
+
+    protected final Node list;
+
+    protected ListOperationNode(Node list) {
+        this.list = list;
+    }
+
+    protected Lis list(Frame frame)
+            throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+            WrongSyntaxException {
+        return Operations.list(list.execute(frame));
+    }
+
+    public static class Cons extends ListOperationNode {
+        private final Node element;
+
+        public Cons(Node list, Node element) {
+            super(list);
+            this.element = element;
+        }
+
+        @Override
+        public Expression execute(Frame frame)
+                throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+                WrongSyntaxException {
+            Lis oplis = list(frame);
+            return Operations.cons(element.execute(frame), oplis);
+        }
+    }
+
+    public static class Head extends ListOperationNode {
+        public Head(Node list) {
+            super(list);
+        }
+
+        @Override
+        public Expression execute(Frame frame)
+                throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+                WrongSyntaxException {
+            Lis oplis = list(frame);
+            return Operations.hd(oplis);
+        }
+    }
+
+    public static class Tail extends ListOperationNode {
+        public Tail(Node list) {
+            super(list);
+        }
+
+        @Override
+        public Expression execute(Frame frame)
+                throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+                WrongSyntaxException {
+            Lis oplis = list(frame);
+            return Operations.tl(oplis);
+        }
+    }
+
+    public static class IsEmpty extends ListOperationNode {
+        public IsEmpty(Node list) {
+            super(list);
+        }
+
+        @Override
+        public Expression execute(Frame frame)
+                throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+                WrongSyntaxException {
+            Lis oplis = list(frame);
+            return Operations.isEmpty(oplis);
+        }
+    }
+
+    public static class Length extends ListOperationNode {
+        public Length(Node list) {
+            super(list);
+        }
+
+        @Override
+        public Expression execute(Frame frame)
+                throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+                WrongSyntaxException {
+            Lis oplis = list(frame);
+            return Operations.length(oplis);
+        }
+    }
+
+    public static class Append extends ListOperationNode {
+        private final Node other;
+
+        public Append(Node list, Node other) {
+            super(list);
+            this.other = other;
+        }
+
+        @Override
+        public Expression execute(Frame frame)
+                throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+                WrongSyntaxException {
+            Lis oplis = list(frame);
+            return Operations.append(oplis, other.execute(frame));
+        }
+    }
+
+    public static class Rev extends ListOperationNode {
+        public Rev(Node list) {
+            super(list);
+        }
+
+        @Override
+        public Expression execute(Frame frame)
+                throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+                WrongSyntaxException {
+            Lis oplis = list(frame);
+            return Operations.rev(oplis);
+        }
+    }
+
+    public static class Map extends ListOperationNode {
+        private final Node function;
+
+        public Map(Node list, Node function) {
+            super(list);
+            this.function = function;
+        }
+
+        @Override
+        public Expression execute(Frame frame)
+                throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+                WrongSyntaxException {
+            Lis oplis = list(frame);
+            List<Expression> newList = new ArrayList<>(oplis.size());
+            if (!oplis.isEmpty()) {
+                Expression fun = function.execute(frame);
+                for (Expression elem : oplis)
+                    newList.add(CallNode.invoke(fun, elem));
+            }
+            return Lis.of(newList, null);
+        }
+    }
+
+    public static class Filter extends ListOperationNode {
+        private final Node function;
+
+        public Filter(Node list, Node function) {
+            super(list);
+            this.function = function;
+        }
+
+        @Override
+        public Expression execute(Frame frame)
+                throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+                WrongSyntaxException {
+            Lis oplis = list(frame);
+            List<Expression> newList = new ArrayList<>();
+            if (!oplis.isEmpty()) {
+                Expression fun = function.execute(frame);
+                for (Expression elem : oplis)
+                    if (BinaryNode.bool(CallNode.invoke(fun, elem)))
+                        newList.add(elem);
+            }
+            return Lis.of(newList, null);
+        }
+    }
+
+    public static class Exists extends ListOperationNode {
+        private final Node function;
+
+        public Exists(Node list, Node function) {
+            super(list);
+            this.function = function;
+        }
+
+        @Override
+        public Expression execute(Frame frame)
+                throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+                WrongSyntaxException {
+            Lis oplis = list(frame);
+            if (!oplis.isEmpty()) {
+                Expression fun = function.execute(frame);
+                for (Expression elem : oplis)
+                    if (BinaryNode.bool(CallNode.invoke(fun, elem)))
+                        return Bool.TRUE;
+            }
+            return Bool.FALSE;
+        }
+    }
+
+    public static class ForAll extends ListOperationNode {
+        private final Node function;
+
+        public ForAll(Node list, Node function) {
+            super(list);
+            this.function = function;
+        }
+
+        @Override
+        public Expression execute(Frame frame)
+                throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+                WrongSyntaxException {
+            Lis oplis = list(frame);
+            if (!oplis.isEmpty()) {
+                Expression fun = function.execute(frame);
+                for (Expression elem : oplis)
+                    if (!BinaryNode.bool(CallNode.invoke(fun, elem)))
+                        return Bool.FALSE;
+            }
+            return Bool.TRUE;
+        }
+    }
+
+    // like the tree interpreter, folding an empty list gives no value; the accumulators are checked to keep
+    // their type unless type inference has found them to
+    public static class Fold extends ListOperationNode {
+        private final Node function, accumulator;
+        private final boolean checked;
+
+        public Fold(Node list, Node function, Node accumulator, boolean checked) {
+            super(list);
+            this.function = function;
+            this.accumulator = accumulator;
+            this.checked = checked;
+        }
+
+        @Override
+        public Expression execute(Frame frame)
+                throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+                WrongSyntaxException {
+            Lis oplis = list(frame);
+            Expression firstAcc = accumulator.execute(frame);
+            Expression newAcc = null;
+            if (!oplis.isEmpty()) {
+                Expression fun = function.execute(frame);
+                for (Expression elem : oplis) {
+                    newAcc = CallNode.invoke(fun, elem, newAcc == null ? firstAcc : newAcc);
+                    if (checked)
+                        Operations.typecheck(newAcc, firstAcc);
+                }
+            }
+            return newAcc;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package nodes;
+
+import constructs.Expression;
+import constructs.Frame;
+import exceptions.*;
+
+// an executable node, produced once from the parsed tree by the NodeCompiler
+public abstract class Node implements Expression {
+
+    public abstract Expression execute(Frame frame)
+            throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+            WrongSyntaxException;
+
+    // runs the calls left pending by nodes in tail position until a real value comes out
+    public static Expression trampoline(Expression result)
+            throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+            WrongSyntaxException {
+        while (result instanceof TailCall call)
+            result = call.body.execute(call.frame);
+        return result;
+    }
+}
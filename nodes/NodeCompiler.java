@@ -0,0 +1,164 @@
+package nodes;
+
+import constructs.*;
+import exceptions.NoBindingException;
+import exceptions.UnknownCommandException;
+import java.util.List;
+import values.*;
+
+// turns a resolved tree into executable nodes, choosing the node class of every operator once
+public class NodeCompiler {
+
+    public Node compile(Expression e) throws UnknownCommandException, NoBindingException {
+        return compile(e, false);
+    }
+
+    // 'tail' tells whether the value of e is the value of the enclosing function body
+    private Node compile(Expression e, boolean tail) throws UnknownCommandException, NoBindingException {
+        switch (e) {
+            case Int i -> {
+                return new ConstantNode(i);
+            }
+            case Bool b -> {
+                return new ConstantNode(b);
+            }
+            case Identifier id -> {
+                if (id.depth < 0)
+                    throw new NoBindingException("variable '" + id.value + "' is not bound in scope");
+                return new ReadNode(id.depth, id.slot);
+            }
+            case AnonymusFunction f -> {
+                return new LambdaNode(f.formalParams, compile(f.body, true));
+            }
+            case ListLiteral l -> {
+                return new ListNode(compile(l.elements), !l.typed);
+            }
+            case BinaryOperation bop -> {
+                Node left = compile(bop.e1, false), right = compile(bop.e2, false);
+                switch (bop.op.code) {
+                    case ADD -> {
+                        return new BinaryNode.IntAdd(left, right);
+                    }
+                    case SUB -> {
+                        return new BinaryNode.IntSub(left, right);
+                    }
+                    case MUL -> {
+                        return new BinaryNode.IntMul(left, right);
+                    }
+                    case DIV -> {
+                        return new BinaryNode.IntDiv(left, right);
+                    }
+                    case MOD -> {
+                        return new BinaryNode.IntMod(left, right);
+                    }
+                    case GT -> {
+                        return new BinaryNode.IntGt(left, right);
+                    }
+                    case LT -> {
+                        return new BinaryNode.IntLt(left, right);
+                    }
+                    case GE -> {
+                        return new BinaryNode.IntGe(left, right);
+                    }
+                    case LE -> {
+                        return new BinaryNode.IntLe(left, right);
+                    }
+                    case AND -> {
+                        return new BinaryNode.BoolAnd(left, right);
+                    }
+                    case OR -> {
+                        return new BinaryNode.BoolOr(left, right);
+                    }
+                    case XOR -> {
+                        return new BinaryNode.Xor(left, right);
+                    }
+                    case EQ -> {
+                        return new BinaryNode.Equal(left, right);
+                    }
+                    case NE -> {
+                        return new BinaryNode.NotEqual(left, right);
+                    }
+                    default -> throw new UnknownCommandException("unknown operation '" + bop.op.value + "'");
+                }
+            }
+            case UnaryOperation uop -> {
+                if (uop.op.code != Operator.NOT)
+                    throw new UnknownCommandException("unknown operation '" + uop.op.value + "'");
+                return new NotNode(compile(uop.arg, false));
+            }
+            case Ifthenelse ifte -> {
+                return new IfNode(compile(ifte.guard, false), compile(ifte.then, tail), compile(ifte.els, tail));
+            }
+            case Let let -> {
+                Node value = compile(let.value, false);
+                if (let.body != null)
+                    return new LetNode(value, compile(let.body, tail), -1);
+                return new LetNode(value, null, ((Identifier) let.var).slot);
+            }
+            case Letrec letr -> {
+                Identifier name = (Identifier) letr.name;
+                Node fbody = compile(letr.fbody, true);
+                if (letr.letbody != null)
+                    return new LetRecNode(name, letr.params, fbody, compile(letr.letbody, tail), -1);
+                return new LetRecNode(name, letr.params, fbody, null, name.slot);
+            }
+            case FunctionalApplication app -> {
+                return new CallNode(compile(app.iden, false), compile(app.actualParams), tail);
+            }
+            case ListOperation lop -> {
+                Node list = compile(lop.list, false);
+                switch (lop.op.code) {
+                    case CONS -> {
+                        return new ListOperationNode.Cons(list, compile(lop.arg2, false));
+                    }
+                    case HD -> {
+                        return new ListOperationNode.Head(list);
+                    }
+                    case TL -> {
+                        return new ListOperationNode.Tail(list);
+                    }
+                    case IS_EMPTY -> {
+                        return new ListOperationNode.IsEmpty(list);
+                    }
+                    case LENGTH -> {
+                        return new ListOperationNode.Length(list);
+                    }
+                    case APPEND -> {
+                        return new ListOperationNode.Append(list, compile(lop.arg2, false));
+                    }
+                    case REV -> {
+                        return new ListOperationNode.Rev(list);
+                    }
+                    case MAP -> {
+                        return new ListOperationNode.Map(list, compile(lop.arg2, false));
+                    }
+                    case FILTER -> {
+                        return new ListOperationNode.Filter(list, compile(lop.arg2, false));
+                    }
+                    case EXISTS -> {
+                        return new ListOperationNode.Exists(list, compile(lop.arg2, false));
+                    }
+                    case FOR_ALL -> {
+                        return new ListOperationNode.ForAll(list, compile(lop.arg2, false));
+                    }
+                    case FOLD -> {
+                        return new ListOperationNode.Fold(list, compile(lop.arg1, false), compile(lop.arg2, false),
+                                !lop.typed);
+                    }
+                    default -> throw new UnknownCommandException("unknown list operation '" + lop.op.value + "'");
+                }
+            }
+            case SeqOperation sop -> {
+                return new SeqNode(sop.op.code, compile(sop.args));
+            }
+            default -> throw new UnknownCommandException(null);
+        }
+    }
+
+    private Node[] compile(List<Expression> expressions) throws UnknownCommandException, NoBindingException {
+        Node[] nodes = new Node[expressions.size()];
+        for (int i = 0; i < nodes.length; i++)
+            nodes[i] = compile(expressions.get(i), false);
+        return nodes;
+    }
+}
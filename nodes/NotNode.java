@@ -0,0 +1,23 @@
+package nodes;
+
+import constructs.Expression;
+import constructs.Frame;
+import exceptions.*;
+import runtime.Operations;
+import values.Bool;
+
+public class NotNode extends Node {
+    private final Node arg;
+
+    public NotNode(Node arg) {
+        this.arg = arg;
+    }
+
+    @Override
+    public Expression execute(Frame frame)
+            throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+            WrongSyntaxException {
+        Expression value = arg.execute(frame);
+        return Bool.of(!Operations.bool(value));
+    }
+}
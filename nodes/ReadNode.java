@@ -0,0 +1,20 @@
+package nodes;
+
+import constructs.Expression;
+import constructs.Frame;
+
+public class ReadNode extends Node {
+    private final int depth, slot;
+
+    public ReadNode(int depth, int slot) {
+        this.depth = depth;
+        this.slot = slot;
+    }
+
+    @Override
+    public Expression execute(Frame frame) {
+        for (int i = 0; i < depth; i++)
+            frame = frame.parent;
+        return frame.slots[slot];
+    }
+}
@@ -0,0 +1,30 @@
+package nodes;
+
+import constructs.Expression;
+import constructs.Frame;
+import constructs.Operator;
+import exceptions.*;
+import java.util.ArrayList;
+import java.util.List;
+import runtime.Sequences;
+
+// a Seq operation: its operands in order, then runtime.Sequences
+public class SeqNode extends Node {
+    private final Operator op;
+    private final Node[] args;
+
+    public SeqNode(Operator op, Node[] args) {
+        this.op = op;
+        this.args = args;
+    }
+
+    @Override
+    public Expression execute(Frame frame)
+            throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+            WrongSyntaxException {
+        List<Expression> values = new ArrayList<>(args.length);
+        for (Node arg : args)
+            values.add(arg.execute(frame));
+        return Sequences.evaluate(op, values, CallNode::invoke);
+    }
+}
@@ -0,0 +1,15 @@
+package nodes;
+
+import constructs.Expression;
+import constructs.Frame;
+
+// a call in tail position, returned to the nearest non tail call instead of growing the Java stack
+public class TailCall implements Expression {
+    public final Node body;
+    public final Frame frame;
+
+    public TailCall(Node body, Frame frame) {
+        this.body = body;
+        this.frame = frame;
+    }
+}
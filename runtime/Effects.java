@@ -0,0 +1,115 @@
+package runtime;
+
+import constructs.*;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import values.*;
+
+// Decides whether applying a function value does nothing but compute its result, so that it can be applied to
+// many arguments at once on different threads. The code of the function, and of every function it can reach
+// through the values it captures, must be made only of constructs known to be free of effects. None of today's
+// constructs has effects (a declaration without 'in' inside a function is dropped), so anything else found
+// makes the function impure.
+public class Effects {
+
+    public static boolean pure(Expression value) {
+        return pure(value, Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    private static boolean pure(Expression value, Set<Expression> seen) {
+        if (value == null || !seen.add(value))
+            return true;
+        switch (value) {
+            case Int _, Bool _ -> {
+                return true;
+            }
+            case Closure c -> {
+                return pure(c.body, 1, c.fenv, seen);
+            }
+            case RecursiveClosure rc -> {
+                return pure(rc.body, 1, rc.fenv, seen);
+            }
+            case Lis l -> {
+                if (l.type instanceof Int || l.type instanceof Bool)
+                    return true;
+                for (Expression element : l)
+                    if (!pure(element, seen))
+                        return false;
+                return true;
+            }
+            case Seq s -> {
+                return pure(s.source, seen) && pure(s.function, seen) && pure(s.list, seen);
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    // 'code' runs 'depth' frames below 'env', the frame its free variables are read from
+    private static boolean pure(Expression code, int depth, Frame env, Set<Expression> seen) {
+        switch (code) {
+            case null -> {
+                return true;
+            }
+            case Int _, Bool _ -> {
+                return true;
+            }
+            case Identifier id -> {
+                if (id.depth < depth)
+                    return true;
+                Frame frame = env;
+                for (int i = depth; i < id.depth && frame != null; i++)
+                    frame = frame.parent;
+                if (frame == null || id.slot < 0 || id.slot >= frame.slots.length)
+                    return true;
+                return pure(frame.slots[id.slot], seen);
+            }
+            case AnonymusFunction f -> {
+                return pure(f.body, depth + 1, env, seen);
+            }
+            case ListLiteral l -> {
+                for (Expression element : l.elements)
+                    if (!pure(element, depth, env, seen))
+                        return false;
+                return true;
+            }
+            case BinaryOperation bop -> {
+                return pure(bop.e1, depth, env, seen) && pure(bop.e2, depth, env, seen);
+            }
+            case UnaryOperation uop -> {
+                return pure(uop.arg, depth, env, seen);
+            }
+            case Ifthenelse ifte -> {
+                return pure(ifte.guard, depth, env, seen) && pure(ifte.then, depth, env, seen)
+                        && pure(ifte.els, depth, env, seen);
+            }
+            case Let let -> {
+                return pure(let.value, depth, env, seen) && pure(let.body, depth + 1, env, seen);
+            }
+            case Letrec letr -> {
+                return pure(letr.fbody, depth + 1, env, seen) && pure(letr.letbody, depth + 1, env, seen);
+            }
+            case FunctionalApplication app -> {
+                for (Expression param : app.actualParams)
+                    if (!pure(param, depth, env, seen))
+                        return false;
+                return pure(app.iden, depth, env, seen);
+            }
+            case ListOperation lop -> {
+                return pure(lop.arg1, depth, env, seen) && pure(lop.arg2, depth, env, seen)
+                        && pure(lop.list, depth, env, seen);
+            }
+            case SeqOperation sop -> {
+                for (Expression arg : sop.args)
+                    if (!pure(arg, depth, env, seen))
+                        return false;
+                return true;
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package runtime;
+
+import constructs.*;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import values.RecursiveClosure;
+
+// The results of calls of pure recursive functions, for --memo. A call is known by its frame: the function itself
+// in slot 0, compared by identity, then the arguments, compared by value (Int, Bool and Lis define equals). At
+// most 'capacity' results are kept, and the one used least recently makes room for a new one. Functions called
+// by the parallel list operations may be run on several threads at once, so the cache is used under its lock.
+public class Memo {
+    public static final int CAPACITY = 1 << 16;
+
+    private final LinkedHashMap<List<Expression>, Expression> results;
+    private long hits, misses;
+
+    public Memo(int capacity) {
+        results = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Expression>, Expression> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    // whether the result of calling 'rec' depends on its arguments only, which it always does today (see Effects),
+    // and 'rec' uses itself other than by calls in tail position. A tail recursive function, like a loop over an
+    // accumulator, would only fill the cache with one result per step and lose its constant stack.
+    public static boolean memoizable(RecursiveClosure rec) {
+        return selfUsed(rec.body, 0, true) && Effects.pure(rec);
+    }
+
+    // whether 'code', run 'depth' frames below the frame of a call of the function, which holds the function in
+    // slot 0, uses the function other than as the callee of a call in tail position ('tail')
+    private static boolean selfUsed(Expression code, int depth, boolean tail) {
+        switch (code) {
+            case null -> {
+                return false;
+            }
+            case Identifier id -> {
+                return id.depth == depth && id.slot == 0;
+            }
+            case AnonymusFunction f -> {
+                return selfUsed(f.body, depth + 1, false);
+            }
+            case ListLiteral l -> {
+                for (Expression element : l.elements)
+                    if (selfUsed(element, depth, false))
+                        return true;
+                return false;
+            }
+            case BinaryOperation bop -> {
+                return selfUsed(bop.e1, depth, false) || selfUsed(bop.e2, depth, false);
+            }
+            case UnaryOperation uop -> {
+                return selfUsed(uop.arg, depth, false);
+            }
+            case Ifthenelse ifte -> {
+                return selfUsed(ifte.guard, depth, false) || selfUsed(ifte.then, depth, tail)
+                        || selfUsed(ifte.els, depth, tail);
+            }
+            case Let let -> {
+                return selfUsed(let.value, depth, false) || selfUsed(let.body, depth + 1, tail);
+            }
+            case Letrec letr -> {
+                return selfUsed(letr.fbody, depth + 1, false) || selfUsed(letr.letbody, depth + 1, tail);
+            }
+            case FunctionalApplication app -> {
+                for (Expression param : app.actualParams)
+                    if (selfUsed(param, depth, false))
+                        return true;
+                return !tail && selfUsed(app.iden, depth, false);
+            }
+            case ListOperation lop -> {
+                return selfUsed(lop.arg1, depth, false) || selfUsed(lop.arg2, depth, false)
+                        || selfUsed(lop.list, depth, false);
+            }
+            case SeqOperation sop -> {
+                for (Expression arg : sop.args)
+                    if (selfUsed(arg, depth, false))
+                        return true;
+                return false;
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    // the result of the call with this frame, or null when it is not known
+    public synchronized Expression get(Expression[] frame) {
+        Expression result = results.get(Arrays.asList(frame));
+        if (result != null)
+            hits++;
+        else
+            misses++;
+        return result;
+    }
+
+    // the frame must not change afterwards, as it is kept as the key
+    public synchronized void put(Expression[] frame, Expression result) {
+        if (result != null)
+            results.put(Arrays.asList(frame), result);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "memo: " + hits + " hits, " + misses + " misses, " + results.size() + " results kept";
+    }
+}
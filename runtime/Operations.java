@@ -0,0 +1,187 @@
+package runtime;
+
+import constructs.Expression;
+import constructs.Symbol;
+import exceptions.TypeMismatchException;
+import exceptions.UnknownCommandException;
+import exceptions.ZeroDividerException;
+import values.*;
+
+// semantics of the primitive operations, shared by every evaluator
+public class Operations {
+
+    public static Expression binary(Symbol op, Expression e1, Expression e2)
+            throws ZeroDividerException, UnknownCommandException, TypeMismatchException {
+        switch (op.code) {
+            case ADD -> {
+                return Int.of(integer(e1) + integer(e2));
+            }
+            case SUB -> {
+                return Int.of(integer(e1) - integer(e2));
+            }
+            case MUL -> {
+                return Int.of(integer(e1) * integer(e2));
+            }
+            case DIV -> {
+                int i1 = integer(e1), i2 = integer(e2);
+                if (i2 == 0)
+                    throw new ZeroDividerException("cannot divide by zero");
+                return Int.of(i1 / i2);
+            }
+            case AND -> {
+                boolean b1 = bool(e1), b2 = bool(e2);
+                return Bool.of(b1 && b2);
+            }
+            case OR -> {
+                boolean b1 = bool(e1), b2 = bool(e2);
+                return Bool.of(b1 || b2);
+            }
+            case GT -> {
+                return Bool.of(integer(e1) > integer(e2));
+            }
+            case LT -> {
+                return Bool.of(integer(e1) < integer(e2));
+            }
+            case GE -> {
+                return Bool.of(integer(e1) >= integer(e2));
+            }
+            case LE -> {
+                return Bool.of(integer(e1) <= integer(e2));
+            }
+            case MOD -> {
+                return Int.of(integer(e1) % integer(e2));
+            }
+            case XOR -> {
+                typecheck(e2, e1);
+                if (e1 instanceof Bool b1 && e2 instanceof Bool b2)
+                    return Bool.of(b1.value ^ b2.value);
+                else if (e1 instanceof Int i1 && e2 instanceof Int i2)
+                    return Int.of(i1.value ^ i2.value);
+                else
+                    throw new TypeMismatchException(
+                            "unexpected type '" + e1.getClass().getSimpleName() + "' passed to operation ^");
+            }
+            case EQ -> {
+                return Bool.of(equal(e1, e2, "=="));
+            }
+            case NE -> {
+                return Bool.of(!equal(e1, e2, "!="));
+            }
+            default -> throw new UnknownCommandException("unknown operation '" + op.value + "'");
+        }
+    }
+
+    // == and != compare integers or booleans of the same type
+    private static boolean equal(Expression e1, Expression e2, String op) throws TypeMismatchException {
+        typecheck(e2, e1);
+        if (e1 instanceof Bool b1 && e2 instanceof Bool b2)
+            return b1.value == b2.value;
+        else if (e1 instanceof Int i1 && e2 instanceof Int i2)
+            return i1.value == i2.value;
+        else
+            throw new TypeMismatchException(
+                    "unexpected type '" + e1.getClass().getSimpleName() + "' passed to operation " + op);
+    }
+
+    public static Expression unary(Symbol op, Expression arg) throws UnknownCommandException, TypeMismatchException {
+        switch (op.code) {
+            case NOT -> {
+                return Bool.of(!bool(arg));
+            }
+            default -> throw new UnknownCommandException("unknown operation '" + op.value + "'");
+        }
+    }
+
+    // the first element of a list literal fixes the type of all the others
+    public static Expression elementType(Expression first) throws TypeMismatchException {
+        switch (first) {
+            case Int i -> {
+                return i;
+            }
+            case Bool b -> {
+                return b;
+            }
+            case Closure c -> {
+                return c;
+            }
+            case RecursiveClosure rc -> {
+                return rc;
+            }
+            case Lis li -> {
+                return li;
+            }
+            default -> throw new TypeMismatchException(
+                    "unexpected type '" + first.getClass().getSimpleName() + "' inside list");
+        }
+    }
+
+    // the first element consed onto a list of unknown type fixes its type
+    public static Lis cons(Expression element, Lis oplis) throws TypeMismatchException {
+        if (oplis.type != null)
+            typecheck(element, oplis.type);
+        return oplis.cons(element, oplis.type != null ? oplis.type : element);
+    }
+
+    public static Expression hd(Lis oplis) {
+        return oplis.head();
+    }
+
+    public static Lis tl(Lis oplis) {
+        return oplis.tail();
+    }
+
+    public static Bool isEmpty(Lis oplis) {
+        return Bool.of(oplis.isEmpty());
+    }
+
+    public static Int length(Lis oplis) {
+        return Int.of(oplis.size());
+    }
+
+    // the elements of list1 come first; only they are copied, the result shares oplis
+    public static Lis append(Lis oplis, Expression list1) throws TypeMismatchException {
+        typecheck(list1, Lis.class);
+        Lis arglis = (Lis) list1;
+        if (!oplis.isEmpty() && !arglis.isEmpty())
+            typecheck(oplis.type, arglis.type);
+        if (arglis.isEmpty())
+            return oplis;
+        return arglis.concat(oplis, arglis.type);
+    }
+
+    public static Lis rev(Lis oplis) {
+        return oplis.reverse(null);
+    }
+
+    public static void typecheck(Expression actualType, Expression expectedType) throws TypeMismatchException {
+        typecheck(actualType, expectedType.getClass());
+    }
+
+    public static void typecheck(Expression actualType, Class<? extends Expression> expectedType)
+            throws TypeMismatchException {
+        if (actualType.getClass() != expectedType)
+            throw new TypeMismatchException("expected type '" + expectedType.getSimpleName()
+                    + "' but found type '" + actualType.getClass().getSimpleName() + "'");
+    }
+
+    public static int integer(Expression e) throws TypeMismatchException {
+        if (e instanceof Int i)
+            return i.value;
+        typecheck(e, Int.class);
+        return 0;
+    }
+
+    public static boolean bool(Expression e) throws TypeMismatchException {
+        if (e instanceof Bool b)
+            return b.value;
+        typecheck(e, Bool.class);
+        return false;
+    }
+
+    public static Lis list(Expression e) throws TypeMismatchException {
+        if (e instanceof Lis l)
+            return l;
+        typecheck(e, Lis.class);
+        return null;
+    }
+}
@@ -0,0 +1,199 @@
+package runtime;
+
+import constructs.BinaryOperation;
+import constructs.Expression;
+import constructs.Identifier;
+import constructs.Symbol;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import values.*;
+
+// Higher-order list operations run on the common fork-join pool. The elements are split in chunks, each chunk
+// is evaluated in order by one task, and results keep the order of the list. When applications fail, the error
+// reported is the one of the first failing element, as in a sequential run: an element is skipped only once an
+// earlier one is known to have failed.
+public class Parallel {
+    // shorter lists are evaluated on the calling thread
+    public static final int THRESHOLD = 1024;
+    // elements evaluated by a single task
+    private static final int CHUNK = 128;
+
+    public interface Step {
+        Expression apply(Expression element) throws Exception;
+    }
+
+    public interface Combination {
+        Expression apply(Expression e1, Expression e2) throws Exception;
+    }
+
+    // whether a list this long is worth splitting: it is long enough and there is more than one thread to run on
+    public static boolean worth(Lis list) {
+        return list.size() >= THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+
+    public static Expression[] map(Lis list, Step step) throws Exception {
+        Expression[] elements = elements(list);
+        Run run = new Run(elements, step, false);
+        ForkJoinPool.commonPool().invoke(new Chunk(run, 0, elements.length));
+        // pool threads may have a smaller stack than the caller: a deep recursion that overflowed there is
+        // evaluated again here, from the element that failed on
+        if (run.failure instanceof StackOverflowError)
+            for (int i = run.failedAt; i < elements.length; i++)
+                run.results[i] = step.apply(elements[i]);
+        else if (run.failure != null)
+            throw (Exception) run.failure;
+        return run.results;
+    }
+
+    // The index of the first element for which 'test' gives true, or -1. Elements after one known to match are
+    // skipped, and an error is reported only when it comes before the first match.
+    public static int find(Lis list, Step test) throws Exception {
+        Expression[] elements = elements(list);
+        Run run = new Run(elements, test, true);
+        ForkJoinPool.commonPool().invoke(new Chunk(run, 0, elements.length));
+        if (run.failure instanceof StackOverflowError) {
+            for (int i = run.failedAt; i < elements.length; i++)
+                if (test.apply(elements[i]) == Bool.TRUE)
+                    return i;
+            return -1;
+        }
+        if (run.failure != null)
+            throw (Exception) run.failure;
+        return run.failedAt == Integer.MAX_VALUE ? -1 : run.failedAt;
+    }
+
+    // The operator of a function that only combines its two parameters with an associative and commutative
+    // operator, like 'function x acc -> (acc + x)', or null. Folding with it does not depend on the order in
+    // which elements are combined.
+    public static Symbol operator(Expression function) {
+        if (!(function instanceof Closure c) || c.params.size() != 2 || !(c.body instanceof BinaryOperation bop))
+            return null;
+        if (!(bop.e1 instanceof Identifier id1) || !(bop.e2 instanceof Identifier id2) || id1.depth != 0
+                || id2.depth != 0 || id1.slot == id2.slot)
+            return null;
+        return switch (bop.op.code) {
+            case ADD, MUL, AND, OR, XOR -> bop.op;
+            default -> null;
+        };
+    }
+
+    // Folds the elements and 'first' with 'op', combining halves of the list on different threads, or returns
+    // null when some operand has a type the operator rejects, so that the sequential fold reports the error.
+    public static Expression reduce(Symbol op, Lis list, Expression first) throws Exception {
+        Class<? extends Expression> type = switch (op.code) {
+            case ADD, MUL -> Int.class;
+            case AND, OR -> Bool.class;
+            default -> first.getClass();
+        };
+        if (first.getClass() != type)
+            return null;
+        Expression[] elements = elements(list);
+        for (Expression element : elements)
+            if (element.getClass() != type)
+                return null;
+        Combination combination = (e1, e2) -> Operations.binary(op, e1, e2);
+        Expression rest = ForkJoinPool.commonPool().invoke(new Reduction(elements, 0, elements.length, combination));
+        return combination.apply(first, rest);
+    }
+
+    private static Expression[] elements(Lis list) {
+        Expression[] elements = new Expression[list.size()];
+        int i = 0;
+        for (Expression element : list)
+            elements[i++] = element;
+        return elements;
+    }
+
+    private static class Run {
+        final Expression[] elements, results;
+        final Step step;
+        // whether the run stops at the first element whose result is true
+        final boolean find;
+        // the first element known to have failed and its error, or to have matched with no error
+        private int failedAt = Integer.MAX_VALUE;
+        private Throwable failure;
+
+        Run(Expression[] elements, Step step, boolean find) {
+            this.elements = elements;
+            this.results = new Expression[elements.length];
+            this.step = step;
+            this.find = find;
+        }
+
+        synchronized boolean failedBefore(int index) {
+            return failedAt < index;
+        }
+
+        synchronized void fail(int index, Throwable error) {
+            if (index < failedAt) {
+                failedAt = index;
+                failure = error;
+            }
+        }
+    }
+
+    private static class Chunk extends RecursiveAction {
+        private final Run run;
+        private final int from, to;
+
+        Chunk(Run run, int from, int to) {
+            this.run = run;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Chunk(run, from, middle), new Chunk(run, middle, to));
+                return;
+            }
+            for (int i = from; i < to && !run.failedBefore(i); i++) {
+                try {
+                    run.results[i] = run.step.apply(run.elements[i]);
+                } catch (Exception | StackOverflowError e) {
+                    run.fail(i, e);
+                    return;
+                }
+                if (run.find && run.results[i] == Bool.TRUE) {
+                    run.fail(i, null);
+                    return;
+                }
+            }
+        }
+    }
+
+    private static class Reduction extends RecursiveTask<Expression> {
+        private final Expression[] elements;
+        private final int from, to;
+        private final Combination combination;
+
+        Reduction(Expression[] elements, int from, int to, Combination combination) {
+            this.elements = elements;
+            this.from = from;
+            this.to = to;
+            this.combination = combination;
+        }
+
+        @Override
+        protected Expression compute() {
+            try {
+                if (to - from > CHUNK) {
+                    int middle = (from + to) >>> 1;
+                    Reduction right = new Reduction(elements, middle, to, combination);
+                    right.fork();
+                    Expression left = new Reduction(elements, from, middle, combination).compute();
+                    return combination.apply(left, right.join());
+                }
+                Expression result = elements[from];
+                for (int i = from + 1; i < to; i++)
+                    result = combination.apply(result, elements[i]);
+                return result;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
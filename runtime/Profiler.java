@@ -0,0 +1,161 @@
+package runtime;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Where the time and memory of a program go, by MiniCaml function, for --profile. The interpreter enters a frame
+// when a function is called (named after the let or let rec that bound it), when a list operation runs and when a
+// block runs, and exits it when that is done; a call in tail position takes the place of its caller, as it does on
+// the stack. Every frame counts wall time and the bytes allocated by the thread, both in total and without the
+// frames it entered (self); the total of a recursive function only counts its outermost call. Frames are kept in
+// a calling context tree, a node per path of names from a block, from which collapsed stacks for flame graphs are
+// written. Only the thread that runs the program is followed.
+public class Profiler {
+    // the calls of one name
+    private static final class Function {
+        final String name;
+        long calls, time, self, allocated, selfAllocated;
+        // calls of the function on the stack, of which only the outermost adds to 'time' and 'allocated'
+        int active;
+
+        Function(String name) {
+            this.name = name;
+        }
+    }
+
+    // the calls of a function along one path from the root
+    private static final class Node {
+        final Node parent;
+        final Function function;
+        final Map<String, Node> children = new LinkedHashMap<>();
+        long self;
+
+        Node(Node parent, Function function) {
+            this.parent = parent;
+            this.function = function;
+        }
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    private final Map<String, Function> functions = new HashMap<>();
+    private final Node root = new Node(null, null);
+    private Node current = root;
+    // for every frame entered: when, the bytes allocated by then, and the time and bytes of the frames it entered
+    private long[] started = new long[64], allocatedBefore = new long[64], inner = new long[64],
+            innerAllocated = new long[64];
+    private int depth;
+
+    public void enter(String name) {
+        push(name, allocated(), System.nanoTime());
+    }
+
+    // leaves the frame entered last
+    public void exit() {
+        pop(System.nanoTime(), allocated());
+    }
+
+    // leaves the frame entered last for one of 'name', as a call in tail position does with the frame of its caller;
+    // the clocks are read once, so that no time falls between the two
+    public void replace(String name) {
+        long now = System.nanoTime(), allocated = allocated();
+        pop(now, allocated);
+        push(name, allocated, now);
+    }
+
+    private void push(String name, long allocated, long now) {
+        Node node = current.children.get(name);
+        if (node == null) {
+            node = new Node(current, functions.computeIfAbsent(name, Function::new));
+            current.children.put(name, node);
+        }
+        if (depth == started.length)
+            grow();
+        node.function.active++;
+        current = node;
+        inner[depth] = 0;
+        innerAllocated[depth] = 0;
+        allocatedBefore[depth] = allocated;
+        started[depth++] = now;
+    }
+
+    private void pop(long now, long allocatedNow) {
+        long time = now - started[--depth];
+        long allocated = allocatedNow - allocatedBefore[depth];
+        Function function = current.function;
+        function.calls++;
+        if (--function.active == 0) {
+            function.time += time;
+            function.allocated += allocated;
+        }
+        function.self += time - inner[depth];
+        function.selfAllocated += allocated - innerAllocated[depth];
+        current.self += time - inner[depth];
+        if (depth > 0) {
+            inner[depth - 1] += time;
+            innerAllocated[depth - 1] += allocated;
+        }
+        current = current.parent;
+    }
+
+    // a line per name, the most self time first
+    public String report() {
+        List<Function> sorted = new ArrayList<>(functions.values());
+        sorted.sort(Comparator.comparingLong((Function f) -> f.self).reversed());
+        StringBuilder out = new StringBuilder(String.format("%10s %12s %12s %12s %12s  %s%n", "calls", "total ms",
+                "self ms", "total KB", "self KB", "function"));
+        for (Function f : sorted)
+            out.append(String.format("%10d %12.3f %12.3f %12d %12d  %s%n", f.calls, f.time / 1e6, f.self / 1e6,
+                    f.allocated / 1024, f.selfAllocated / 1024, f.name));
+        if (THREADS == null)
+            out.append("(allocation is not measured by this JVM)\n");
+        return out.toString();
+    }
+
+    // a line per path from a block, its frames separated by ';', followed by the self time of the last one in
+    // microseconds; flamegraph.pl, speedscope and the like read it
+    public void writeCollapsed(Path path) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path))) {
+            for (Node block : root.children.values())
+                collapse(block, block.function.name, out);
+        }
+    }
+
+    private static void collapse(Node node, String stack, PrintWriter out) {
+        if (node.self >= 1000)
+            out.println(stack + " " + node.self / 1000);
+        for (Node child : node.children.values())
+            collapse(child, stack + ";" + child.function.name, out);
+    }
+
+    private void grow() {
+        started = Arrays.copyOf(started, depth * 2);
+        allocatedBefore = Arrays.copyOf(allocatedBefore, depth * 2);
+        inner = Arrays.copyOf(inner, depth * 2);
+        innerAllocated = Arrays.copyOf(innerAllocated, depth * 2);
+    }
+
+    private static long allocated() {
+        return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    // the bean of HotSpot and its relatives, which count the bytes every thread allocates, or null
+    private static com.sun.management.ThreadMXBean threads() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported()) {
+            bean.setThreadAllocatedMemoryEnabled(true);
+            return bean;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,127 @@
+package runtime;
+
+import constructs.Expression;
+import constructs.Operator;
+import exceptions.*;
+import java.util.ArrayList;
+import java.util.List;
+import values.*;
+
+// Semantics of the Seq operations, shared by every evaluator, which passes the way it applies a function. A
+// consumer pushes the elements of the source through the stages one at a time and stops as soon as its result
+// is known: Seq.exists at the first match, Seq.take after the last element it keeps.
+public class Sequences {
+
+    public interface Apply {
+        Expression apply(Expression function, Expression... args)
+                throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+                WrongSyntaxException;
+    }
+
+    // receives the elements in order, and returns false when it wants no more
+    private interface Sink {
+        boolean accept(Expression element)
+                throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+                WrongSyntaxException;
+    }
+
+    // Seq.<op> on its operands, already evaluated
+    public static Expression evaluate(Operator op, List<Expression> args, Apply apply)
+            throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+            WrongSyntaxException {
+        switch (op) {
+            case RANGE -> {
+                return Seq.range(Operations.integer(args.get(0)), Operations.integer(args.get(1)));
+            }
+            case OF_LIST -> {
+                return Seq.of(Operations.list(args.get(0)));
+            }
+            case MAP -> {
+                return seq(args.get(1)).map(args.get(0));
+            }
+            case FILTER -> {
+                return seq(args.get(1)).filter(args.get(0));
+            }
+            case TAKE -> {
+                return seq(args.get(1)).take(Operations.integer(args.get(0)));
+            }
+            case TO_LIST -> {
+                List<Expression> newList = new ArrayList<>();
+                run(seq(args.get(0)), elem -> newList.add(elem), apply);
+                return Lis.of(newList, null);
+            }
+            case LENGTH -> {
+                int[] length = { 0 };
+                run(seq(args.get(0)), elem -> ++length[0] > 0, apply);
+                return Int.of(length[0]);
+            }
+            // like List.fold, folding an empty sequence gives no value
+            case FOLD -> {
+                Expression function = args.get(0), firstAcc = args.get(1);
+                Expression[] newAcc = { null };
+                run(seq(args.get(2)), elem -> {
+                    newAcc[0] = apply.apply(function, elem, newAcc[0] == null ? firstAcc : newAcc[0]);
+                    Operations.typecheck(newAcc[0], firstAcc);
+                    return true;
+                }, apply);
+                return newAcc[0];
+            }
+            case EXISTS, FOR_ALL -> {
+                Expression function = args.get(0);
+                boolean wanted = op == Operator.EXISTS;
+                boolean[] found = { false };
+                run(seq(args.get(1)), elem -> {
+                    found[0] = Operations.bool(apply.apply(function, elem)) == wanted;
+                    return !found[0];
+                }, apply);
+                return Bool.of(found[0] == wanted);
+            }
+            default -> throw new UnknownCommandException("unknown sequence operation 'Seq." + op.text + "'");
+        }
+    }
+
+    private static Seq seq(Expression e) throws TypeMismatchException {
+        Operations.typecheck(e, Seq.class);
+        return (Seq) e;
+    }
+
+    // returns false when the sink stopped it
+    private static boolean run(Seq seq, Sink sink, Apply apply)
+            throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+            WrongSyntaxException {
+        switch (seq.stage) {
+            case RANGE -> {
+                for (int i = seq.from; i < seq.to; i++)
+                    if (!sink.accept(Int.of(i)))
+                        return false;
+                return true;
+            }
+            case LIST -> {
+                for (Expression elem : seq.list)
+                    if (!sink.accept(elem))
+                        return false;
+                return true;
+            }
+            case MAP -> {
+                return run(seq.source, elem -> sink.accept(apply.apply(seq.function, elem)), apply);
+            }
+            case FILTER -> {
+                return run(seq.source,
+                        elem -> !Operations.bool(apply.apply(seq.function, elem)) || sink.accept(elem), apply);
+            }
+            case TAKE -> {
+                if (seq.to <= 0)
+                    return true;
+                // the source stops after the last element kept, the sink only when it asks to
+                int[] left = { seq.to };
+                boolean[] more = { true };
+                run(seq.source, elem -> {
+                    more[0] = sink.accept(elem);
+                    return more[0] && --left[0] > 0;
+                }, apply);
+                return more[0];
+            }
+            default -> throw new IllegalStateException();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+let rec loop n acc =
+    if (n == 0) then acc
+    else (loop (n - 1) (acc + 1)) ;;
+(loop 3000000 0) ;;
+
+let rec fib n = if (n < 2) then n else ((fib (n - 1)) + (fib (n - 2))) ;;
+(fib 60) ;;
+
+let rec count n acc =
+    if (n == 0) then acc
+    else if ((n % 1000) == 0) then (count (n - 1) (acc + (count 0 (fib 40))))
+    else (count (n - 1) (acc + 1)) ;;
+(count 1000000 0) ;;
+
+let rec paths i j =
+    if ((i == 0) | (j == 0)) then 1
+    else ((paths (i - 1) j) + (paths i (j - 1))) ;;
+(paths 16 16) ;;
\ No newline at end of file
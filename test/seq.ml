@@ -0,0 +1,33 @@
+let double = function x -> (x * 2) ;;
+let odd = function x -> ((x % 2) == 1) ;;
+let add = function x acc -> (acc + x) ;;
+let big = function x -> (x > 10) ;;
+let third = function x -> ((x % 3) == 0) ;;
+let list1 = [11,5,21,5,1,2] ;;
+
+Seq.toList (Seq.range 0 5) ;;
+Seq.toList (Seq.range 5 0) ;;
+Seq.toList (Seq.map double (Seq.range 0 5)) ;;
+Seq.toList (Seq.filter odd (Seq.range 0 10)) ;;
+Seq.toList (Seq.take 3 (Seq.range 0 1000000000)) ;;
+Seq.toList (Seq.take 0 (Seq.range 0 10)) ;;
+Seq.toList (Seq.take 3 (Seq.filter third (Seq.map double (Seq.range 0 10)))) ;;
+Seq.length (Seq.filter odd (Seq.range 0 100)) ;;
+Seq.fold add 0 (Seq.map double (Seq.range 1 11)) ;;
+Seq.fold add 0 (Seq.filter big (Seq.range 0 5)) ;;
+Seq.exists big (Seq.map double (Seq.range 0 1000000000)) ;;
+Seq.forAll odd (Seq.ofList list1) ;;
+Seq.toList (Seq.ofList list1) ;;
+
+let evens = (Seq.filter odd (Seq.range 0 20)) in
+    ((Seq.length evens) + (Seq.fold add 0 evens)) ;;
+
+List.fold add 0 (List.filter third (List.map double list1)) ;;
+List.fold add 0 (List.filter odd list1) ;;
+List.length (List.map double (List.filter odd list1)) ;;
+List.map double (List.filter odd list1) ;;
+List.filter third (List.map double list1) ;;
+List.exists big (List.map double list1) ;;
+List.forAll odd (List.filter big list1) ;;
+List.fold add 0 (List.map double []) ;;
+List.map double (List.filter big [1,2,3]) ;;
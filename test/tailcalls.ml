@@ -0,0 +1,14 @@
+let rec loop n acc =
+    if (n == 0) then acc
+    else (loop (n - 1) (acc + 1)) ;;
+(loop 3000000 0) ;;
+
+let odd_with even = function n ->
+    if (n == 0) then false
+    else (even (n - 1)) ;;
+let rec even n =
+    let odd = (odd_with even) in
+        if (n == 0) then true
+        else (odd (n - 1)) ;;
+(even 1000000) ;;
+(even 999999) ;;
\ No newline at end of file
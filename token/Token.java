@@ -1,11 +0,0 @@
-package token;
-
-public class Token {
-    public TokenType type;
-    public String value;
-
-    public Token(TokenType type, String value) {
-        this.type = type;
-        this.value = value;
-    }
-}
\ No newline at end of file
@@ -1,24 +1,32 @@
 package token;
 
 public enum TokenType {
-    INT,
-    BOOL,
-    REC,
-    LET,
-    EQ,
-    IN,
-    IF,
-    THEN,
-    ELSE,
-    FUN,
-    ARROW,
-    END_BLOCK,
-    LPAR,
-    RPAR,
-    LIST_S,
-    LIST_E,
-    LIST_OP,
-    NOT,
-    SYMB,
-    IDEN,
+    INT(null),
+    BOOL(null),
+    REC("rec"),
+    LET("let"),
+    EQ("="),
+    IN("in"),
+    IF("if"),
+    THEN("then"),
+    ELSE("else"),
+    FUN("function"),
+    ARROW("->"),
+    END_BLOCK(";;"),
+    LPAR("("),
+    RPAR(")"),
+    LIST_S("["),
+    LIST_E("]"),
+    LIST_OP(null),
+    SEQ_OP(null),
+    NOT("!"),
+    SYMB(null),
+    IDEN(null);
+
+    // how the token is written, or null when it varies
+    public final String text;
+
+    TokenType(String text) {
+        this.text = text;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,77 @@
+package token;
+
+import java.util.Arrays;
+
+// The tokens of a program in parallel arrays, read by index. A token is its type, the offsets of its text in the
+// source and the line and column it starts at; the value of an integer literal is decoded once by the lexer, an
+// operator is kept as its index in SYMBOLS, and the text of List.<op> and Seq.<op> is the name of the operation.
+public class Tokens {
+    public static final String[] SYMBOLS = { "+", "-", "*", "/", "&", "|", ">", "<", ">=", "<=", "%", "^", "==",
+            "!=" };
+    // the index in SYMBOLS of each operator, which the lexer stores without looking the text up
+    public static final int PLUS = 0, MINUS = 1, TIMES = 2, DIVIDE = 3, AND = 4, OR = 5, GREATER = 6, LESS = 7,
+            GREATER_EQ = 8, LESS_EQ = 9, MOD = 10, XOR = 11, EQUAL = 12, NOT_EQUAL = 13;
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private CharSequence source;
+    private byte[] types = new byte[64];
+    private int[] starts = new int[64], ends = new int[64], values = new int[64], lines = new int[64],
+            columns = new int[64];
+    private int size;
+
+    // drops the tokens of the previous source
+    public void reset(CharSequence source) {
+        this.source = source;
+        size = 0;
+    }
+
+    public void add(TokenType type, int start, int end, int value, int line, int column) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            values = Arrays.copyOf(values, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+        }
+        types[size] = (byte) type.ordinal();
+        starts[size] = start;
+        ends[size] = end;
+        values[size] = value;
+        lines[size] = line;
+        columns[size] = column;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // the type of token i, or null past the last one
+    public TokenType type(int i) {
+        return i < size ? TYPES[types[i]] : null;
+    }
+
+    // the value of an integer literal, or the index in SYMBOLS of an operator
+    public int value(int i) {
+        return values[i];
+    }
+
+    public String text(int i) {
+        TokenType type = TYPES[types[i]];
+        if (type.text != null)
+            return type.text;
+        if (type == TokenType.SYMB)
+            return SYMBOLS[values[i]];
+        return source.subSequence(starts[i], ends[i]).toString();
+    }
+
+    public int line(int i) {
+        return lines[i];
+    }
+
+    public int column(int i) {
+        return columns[i];
+    }
+}
@@ -0,0 +1,7 @@
+package types;
+
+import java.util.List;
+
+// functions take all their parameters at once, so their number is part of the type
+public record FunctionType(List<Type> params, Type result) implements Type {
+}
@@ -0,0 +1,4 @@
+package types;
+
+public record ListType(Type element) implements Type {
+}
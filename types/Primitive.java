@@ -0,0 +1,12 @@
+package types;
+
+public enum Primitive implements Type {
+    INT("int"),
+    BOOL("bool");
+
+    public final String name;
+
+    Primitive(String name) {
+        this.name = name;
+    }
+}
@@ -0,0 +1,4 @@
+package types;
+
+public record SeqType(Type element) implements Type {
+}
@@ -0,0 +1,58 @@
+package types;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+// A static type of the language: int, bool, a list or sequence of some type, a function, or a variable that
+// unification binds to one of these.
+public sealed interface Type permits Primitive, ListType, SeqType, FunctionType, Variable {
+
+    // the type a chain of bound variables stands for
+    static Type resolve(Type type) {
+        while (type instanceof Variable v && v.binding != null)
+            type = v.binding;
+        return type;
+    }
+
+    // how the type is written in messages, naming variables 'a, 'b, ... in the order they appear
+    static String show(Type type, Map<Variable, String> names) {
+        switch (resolve(type)) {
+            case Primitive p -> {
+                return p.name;
+            }
+            case ListType l -> {
+                return operand(l.element(), names) + " list";
+            }
+            case SeqType s -> {
+                return operand(s.element(), names) + " seq";
+            }
+            case FunctionType f -> {
+                String params;
+                if (f.params().size() == 1)
+                    params = operand(f.params().get(0), names);
+                else {
+                    StringBuilder s = new StringBuilder("(");
+                    for (Type param : f.params())
+                        s.append(s.length() > 1 ? ", " : "").append(show(param, names));
+                    params = s.append(")").toString();
+                }
+                return params + " -> " + show(f.result(), names);
+            }
+            case Variable v -> {
+                return names.computeIfAbsent(v,
+                        k -> (v.equality ? "''" : "'") + (char) ('a' + names.size() % 26)
+                                + (names.size() >= 26 ? Integer.toString(names.size() / 26) : ""));
+            }
+        }
+    }
+
+    static String show(Type type) {
+        return show(type, new IdentityHashMap<>());
+    }
+
+    // a function type written where it is followed by more needs parentheses
+    private static String operand(Type type, Map<Variable, String> names) {
+        String shown = show(type, names);
+        return resolve(type) instanceof FunctionType ? "(" + shown + ")" : shown;
+    }
+}
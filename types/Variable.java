@@ -0,0 +1,18 @@
+package types;
+
+// An unknown type. Unification binds it; until then its level is the depth of the let declaration it was made
+// in, and a variable left unbound once that declaration is typed is generalized to GENERIC, standing for any
+// type, with every use of the declaration getting its own copy.
+public final class Variable implements Type {
+    public static final int GENERIC = Integer.MAX_VALUE;
+
+    public Type binding;
+    public int level;
+    // only int or bool may be bound to it, as for the operands of ==, != and ^
+    public boolean equality;
+
+    public Variable(int level, boolean equality) {
+        this.level = level;
+        this.equality = equality;
+    }
+}
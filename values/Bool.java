@@ -2,13 +2,26 @@ package values;
 
 import constructs.Expression;
 
-public class Bool implements Expression {
-    public Boolean value;
+public final class Bool implements Expression {
+    public static final Bool TRUE = new Bool(true), FALSE = new Bool(false);
 
-    public Bool() {
-    }
+    public final boolean value;
 
-    public Bool(boolean value) {
+    private Bool(boolean value) {
         this.value = value;
     }
-}
\ No newline at end of file
+
+    public static Bool of(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Bool b && b.value == value;
+    }
+
+    @Override
+    public int hashCode() {
+        return Boolean.hashCode(value);
+    }
+}
@@ -2,18 +2,25 @@ package values;
 
 import java.util.List;
 
-import constructs.Binding;
 import constructs.Expression;
+import constructs.Frame;
+import jit.CompiledFunction;
 
 public class Closure implements Expression {
     public List<Expression> params;
     public Expression body;
-    public List<Binding> fenv;
+    public Frame fenv;
+    // calls made so far and the code compiled once the function got hot, see Interpreter.TIER_UP_CALLS; both are
+    // shared by the threads that call the function, which update them through Interpreter's VarHandles
+    public volatile int calls;
+    public volatile CompiledFunction code;
+    // the variable of the let that first bound the function, for --profile; null while it has not been bound
+    public String name;
 
     public Closure() {
     }
 
-    public Closure(List<Expression> params, Expression body, List<Binding> fenv) {
+    public Closure(List<Expression> params, Expression body, Frame fenv) {
         this.params = params;
         this.body = body;
         this.fenv = fenv;
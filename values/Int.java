@@ -2,13 +2,35 @@ package values;
 
 import constructs.Expression;
 
-public class Int implements Expression {
-    public Integer value;
+public final class Int implements Expression {
+    // small integers are shared, so counters and indices do not allocate
+    private static final int CACHE_LOW = -128, CACHE_HIGH = 1023;
+    private static final Int[] cache = new Int[CACHE_HIGH - CACHE_LOW + 1];
 
-    public Int() {
+    static {
+        for (int i = 0; i < cache.length; i++)
+            cache[i] = new Int(i + CACHE_LOW);
     }
 
-    public Int(int value) {
+    public final int value;
+
+    private Int(int value) {
         this.value = value;
     }
-}
\ No newline at end of file
+
+    public static Int of(int value) {
+        if (value >= CACHE_LOW && value <= CACHE_HIGH)
+            return cache[value - CACHE_LOW];
+        return new Int(value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Int i && i.value == value;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(value);
+    }
+}
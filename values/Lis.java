@@ -1,9 +1,366 @@
 package values;
 
 import constructs.Expression;
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 
-public class Lis implements Expression {
-    public LinkedList<Expression> lis = new LinkedList<>();
-    public Expression type;
-}
\ No newline at end of file
+// An immutable list: cons, hd and tl take constant time and every list shares the tails of the lists it was
+// built from. Lists of integers or booleans keep their elements unboxed in a store (an int[] or a bit set),
+// anything else is a chain of cons cells; the empty list ends every chain. 'type' is a sample element that
+// fixes the type of the others, null while it is not known.
+public final class Lis implements Expression, Iterable<Expression> {
+    private static final Lis EMPTY = new Lis(null, null, null, 0, null);
+
+    public final Expression type;
+    private final int size;
+    // a cons cell, or the first 'size' slots of a store, whose last slot holds the first element
+    private final Expression head;
+    private final Lis tail;
+    private final Store store;
+
+    private Lis(Expression head, Lis tail, Store store, int size, Expression type) {
+        this.head = head;
+        this.tail = tail;
+        this.store = store;
+        this.size = size;
+        this.type = type;
+    }
+
+    public static Lis empty() {
+        return EMPTY;
+    }
+
+    public static Lis empty(Expression type) {
+        return type == null ? EMPTY : new Lis(null, null, null, 0, type);
+    }
+
+    // the given elements in order, ending with an empty list of the same type
+    public static Lis of(List<Expression> elements, Expression type) {
+        int n = elements.size();
+        if (n > 0 && all(elements, Int.class)) {
+            Ints ints = new Ints(n, n);
+            for (int i = 0; i < n; i++)
+                ints.values[i] = ((Int) elements.get(n - 1 - i)).value;
+            return new Lis(null, null, ints, n, type);
+        }
+        if (n > 0 && all(elements, Bool.class)) {
+            Bools bools = new Bools(n, n);
+            for (int i = 0; i < n; i++)
+                bools.set(i, ((Bool) elements.get(n - 1 - i)).value);
+            return new Lis(null, null, bools, n, type);
+        }
+        Lis l = empty(type);
+        for (int i = n - 1; i >= 0; i--)
+            l = new Lis(elements.get(i), l, null, l.size + 1, type);
+        return l;
+    }
+
+    // the first 'count' of 'values', in order: integers, or booleans stored as 0 and 1 when 'bools'
+    public static Lis of(int[] values, int count, boolean bools) {
+        if (count == 0)
+            return EMPTY;
+        if (bools) {
+            Bools store = new Bools(count, count);
+            for (int i = 0; i < count; i++)
+                store.set(i, values[count - 1 - i] != 0);
+            return new Lis(null, null, store, count, Bool.of(values[0] != 0));
+        }
+        Ints store = new Ints(count, count);
+        for (int i = 0; i < count; i++)
+            store.values[i] = values[count - 1 - i];
+        return new Lis(null, null, store, count, Int.of(values[0]));
+    }
+
+    private static boolean all(List<Expression> elements, Class<? extends Expression> type) {
+        for (Expression element : elements)
+            if (element.getClass() != type)
+                return false;
+        return true;
+    }
+
+    public Lis cons(Expression element, Expression type) {
+        switch (element) {
+            case Int i when size == 0 || store instanceof Ints -> {
+                Ints ints = size == 0 ? new Ints(1, 4) : (Ints) reserve(1);
+                ints.values[size] = i.value;
+                return new Lis(null, null, ints, size + 1, type);
+            }
+            case Bool b when size == 0 || store instanceof Bools -> {
+                Bools bools = size == 0 ? new Bools(1, 64) : (Bools) reserve(1);
+                bools.set(size, b.value);
+                return new Lis(null, null, bools, size + 1, type);
+            }
+            default -> {
+                return new Lis(element, this, null, size + 1, type);
+            }
+        }
+    }
+
+    // the elements of this list followed by those of rest; primitives are copied in one go, onto the store of
+    // rest when it has room
+    public Lis concat(Lis rest, Expression type) {
+        if (store != null && rest.size == 0)
+            return new Lis(null, null, store, size, type);
+        if (store != null && rest.store != null && rest.store.getClass() == store.getClass()) {
+            Store target = rest.reserve(size);
+            target.copy(store, size, rest.size);
+            return new Lis(null, null, target, rest.size + size, type);
+        }
+        Expression[] elements = new Expression[size];
+        int i = 0;
+        for (Expression element : this)
+            elements[i++] = element;
+        Lis l = rest;
+        while (i > 0)
+            l = l.cons(elements[--i], type);
+        return l;
+    }
+
+    public Lis reverse(Expression type) {
+        if (store != null)
+            return new Lis(null, null, store.reverse(size), size, type);
+        Lis l = empty(type);
+        for (Expression element : this)
+            l = l.cons(element, type);
+        return l;
+    }
+
+    // the store of this list with 'count' more slots after its elements, or a copy when another list has already
+    // taken those slots
+    private Store reserve(int count) {
+        return store.claim(size, count) ? store : store.copy(size, count);
+    }
+
+    // the elements in order and unboxed, when the list keeps them all in an integer store; null otherwise
+    public int[] ints() {
+        if (!(store instanceof Ints ints))
+            return null;
+        int[] values = new int[size];
+        for (int i = 0; i < size; i++)
+            values[i] = ints.values[size - 1 - i];
+        return values;
+    }
+
+    public Expression head() {
+        return store != null ? store.get(size - 1) : head;
+    }
+
+    public Lis tail() {
+        if (store == null)
+            return tail;
+        return size == 1 ? empty(type) : new Lis(null, null, store, size - 1, type);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // lists are equal when they hold equal elements in the same order, and their sample elements are of the same
+    // type, which decides what can be consed onto them
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof Lis other) || other.size != size || typeOf(other.type) != typeOf(type))
+            return false;
+        // the same slots of a store, as the tails of a list are
+        if (store != null && store == other.store)
+            return true;
+        if (hashCode() != other.hashCode())
+            return false;
+        Iterator<Expression> elements = other.iterator();
+        for (Expression element : this)
+            if (!element.equals(elements.next()))
+                return false;
+        return true;
+    }
+
+    // the hash of a list is 31 times the hash of its tail plus the hash of its head, so that a store can keep the
+    // hashes of all the lists it holds, and a list and its tails are hashed once
+    @Override
+    public int hashCode() {
+        int cells = 0;
+        Lis l = this;
+        for (; l.store == null && l.size > 0; l = l.tail)
+            cells++;
+        int hash = l.size == 0 ? 1 : l.store.hash(l.size);
+        if (cells == 0)
+            return hash;
+        Expression[] heads = new Expression[cells];
+        l = this;
+        for (int i = 0; i < cells; i++, l = l.tail)
+            heads[i] = l.head;
+        for (int i = cells - 1; i >= 0; i--)
+            hash = 31 * hash + heads[i].hashCode();
+        return hash;
+    }
+
+    private static Class<?> typeOf(Expression type) {
+        return type == null ? null : type.getClass();
+    }
+
+    @Override
+    public Iterator<Expression> iterator() {
+        return new Iterator<>() {
+            private Lis next = Lis.this;
+            private int index = next.size;
+
+            @Override
+            public boolean hasNext() {
+                return next.store != null ? index > 0 : next.size > 0;
+            }
+
+            @Override
+            public Expression next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                if (next.store != null)
+                    return next.store.get(--index);
+                Expression element = next.head;
+                next = next.tail;
+                index = next.size;
+                return element;
+            }
+        };
+    }
+
+    // Slots shared by all the lists built from the same elements: a list owns the first 'size' of them, and
+    // consing onto the longest of those lists fills the next slot in place. 'used' only grows, so no slot is
+    // written twice and older lists keep seeing the same elements.
+    private abstract static sealed class Store permits Ints, Bools {
+        private int used;
+        // the hashes of the lists of the first 1, 2, ... 'hashed' slots, for memoized calls (see Lis.hashCode)
+        private int[] hashes;
+        private int hashed;
+
+        Store(int used) {
+            this.used = used;
+        }
+
+        synchronized boolean claim(int size, int count) {
+            if (used != size || size + count > capacity())
+                return false;
+            used += count;
+            return true;
+        }
+
+        // the hash of the list of the first 'size' slots; as slots never change, the hashes of the lists up to the
+        // longest one hashed so far are kept
+        synchronized int hash(int size) {
+            if (hashes == null || hashes.length < size)
+                hashes = Arrays.copyOf(hashes == null ? new int[0] : hashes, Math.max(size, capacity()));
+            for (; hashed < size; hashed++)
+                hashes[hashed] = 31 * (hashed == 0 ? 1 : hashes[hashed - 1]) + get(hashed).hashCode();
+            return hashes[size - 1];
+        }
+
+        abstract int capacity();
+
+        abstract Expression get(int index);
+
+        // the first 'size' slots in a new store, with 'count' more taken and room to grow after them
+        abstract Store copy(int size, int count);
+
+        // the first 'count' slots of 'from', a store of the same kind, written from slot 'at' on
+        abstract void copy(Store from, int count, int at);
+
+        // the first 'size' slots in the opposite order
+        abstract Store reverse(int size);
+    }
+
+    private static final class Ints extends Store {
+        final int[] values;
+
+        Ints(int used, int capacity) {
+            super(used);
+            values = new int[capacity];
+        }
+
+        @Override
+        int capacity() {
+            return values.length;
+        }
+
+        @Override
+        Expression get(int index) {
+            return Int.of(values[index]);
+        }
+
+        @Override
+        Store copy(int size, int count) {
+            Ints copy = new Ints(size + count, (size + count) * 2);
+            System.arraycopy(values, 0, copy.values, 0, size);
+            return copy;
+        }
+
+        @Override
+        void copy(Store from, int count, int at) {
+            System.arraycopy(((Ints) from).values, 0, values, at, count);
+        }
+
+        @Override
+        Store reverse(int size) {
+            Ints reversed = new Ints(size, size);
+            for (int i = 0; i < size; i++)
+                reversed.values[i] = values[size - 1 - i];
+            return reversed;
+        }
+    }
+
+    private static final class Bools extends Store {
+        final long[] bits;
+
+        Bools(int used, int capacity) {
+            super(used);
+            bits = new long[(capacity + 63) >> 6];
+        }
+
+        boolean bit(int index) {
+            return (bits[index >> 6] & 1L << index) != 0;
+        }
+
+        void set(int index, boolean value) {
+            if (value)
+                bits[index >> 6] |= 1L << index;
+            else
+                bits[index >> 6] &= ~(1L << index);
+        }
+
+        @Override
+        int capacity() {
+            return bits.length << 6;
+        }
+
+        @Override
+        Expression get(int index) {
+            return Bool.of(bit(index));
+        }
+
+        @Override
+        Store copy(int size, int count) {
+            Bools copy = new Bools(size + count, (size + count) * 2);
+            System.arraycopy(bits, 0, copy.bits, 0, (size + 63) >> 6);
+            return copy;
+        }
+
+        @Override
+        void copy(Store from, int count, int at) {
+            for (int i = 0; i < count; i++)
+                set(at + i, ((Bools) from).bit(i));
+        }
+
+        @Override
+        Store reverse(int size) {
+            Bools reversed = new Bools(size, size);
+            for (int i = 0; i < size; i++)
+                reversed.set(i, bit(size - 1 - i));
+            return reversed;
+        }
+    }
+}
@@ -2,20 +2,27 @@ package values;
 
 import java.util.List;
 
-import constructs.Binding;
 import constructs.Expression;
+import constructs.Frame;
 import constructs.Identifier;
+import jit.CompiledFunction;
 
 public class RecursiveClosure implements Expression {
     public Identifier name;
     public List<Expression> params;
     public Expression body;
-    public List<Binding> fenv;
+    public Frame fenv;
+    // calls made so far and the code compiled once the function got hot, see Interpreter.TIER_UP_CALLS; both are
+    // shared by the threads that call the function, which update them through Interpreter's VarHandles
+    public volatile int calls;
+    public volatile CompiledFunction code;
+    // set under --memo when the result depends on nothing but the arguments, so that calls go through runtime.Memo
+    public boolean memoized;
 
     public RecursiveClosure() {
     }
 
-    public RecursiveClosure(Identifier name, List<Expression> params, Expression body, List<Binding> fenv) {
+    public RecursiveClosure(Identifier name, List<Expression> params, Expression body, Frame fenv) {
         this.name = name;
         this.params = params;
         this.body = body;
@@ -0,0 +1,50 @@
+package values;
+
+import constructs.Expression;
+
+// A lazy sequence: where its elements come from and the stages they go through, run only by an operation that
+// consumes it (see runtime.Sequences), in a single pass and without building the lists in between. A sequence
+// can be consumed any number of times.
+public final class Seq implements Expression {
+    public enum Stage {
+        RANGE, LIST, MAP, FILTER, TAKE
+    }
+
+    public final Stage stage;
+    // the sequence this stage reads from, null for RANGE and LIST
+    public final Seq source;
+    // the function a MAP or FILTER applies, the list a LIST reads
+    public final Expression function;
+    public final Lis list;
+    // the integers of a RANGE go from 'from' to 'to' excluded; a TAKE keeps the first 'to' elements
+    public final int from, to;
+
+    private Seq(Stage stage, Seq source, Expression function, Lis list, int from, int to) {
+        this.stage = stage;
+        this.source = source;
+        this.function = function;
+        this.list = list;
+        this.from = from;
+        this.to = to;
+    }
+
+    public static Seq range(int from, int to) {
+        return new Seq(Stage.RANGE, null, null, null, from, to);
+    }
+
+    public static Seq of(Lis list) {
+        return new Seq(Stage.LIST, null, null, list, 0, 0);
+    }
+
+    public Seq map(Expression function) {
+        return new Seq(Stage.MAP, this, function, null, 0, 0);
+    }
+
+    public Seq filter(Expression function) {
+        return new Seq(Stage.FILTER, this, function, null, 0, 0);
+    }
+
+    public Seq take(int count) {
+        return new Seq(Stage.TAKE, this, null, null, 0, count);
+    }
+}
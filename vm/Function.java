@@ -0,0 +1,13 @@
+package vm;
+
+import constructs.Expression;
+import java.util.List;
+
+// Code of a function body: where it starts in the instruction stream of its block, and the deepest the
+// operand stack gets while it runs. Closures created by the VM hold one of these as their body.
+public class Function implements Expression {
+    public List<Expression> params;
+    public int[] code;
+    public Expression[] constants;
+    public int entry, maxStack;
+}
@@ -0,0 +1,43 @@
+package vm;
+
+// Instructions of the virtual machine. Operands follow the opcode in the instruction stream; the comment
+// lists them and the effect on the operand stack.
+final class Opcode {
+    static final int CONST = 0; // index: -> constants[index]
+    static final int LOAD = 1; // depth slot: -> value of the variable
+    static final int DEFINE = 2; // slot: value -> value, stored in the global frame
+    static final int ENTER = 3; // value -> , opens a frame holding the value
+    static final int LEAVE = 4; // closes the innermost frame
+    static final int JUMP = 5; // target
+    static final int JUMP_IF_FALSE = 6; // target: guard ->
+    static final int CLOSURE = 7; // index: -> closure of the function constants[index]
+    static final int REC_CLOSURE = 8; // index name: -> recursive closure named by constants[name]
+    static final int CALL = 9; // count: function arguments... -> result
+    static final int TAIL_CALL = 10; // count: function arguments... -> , replaces the current call
+    static final int RETURN = 11; // result -> , back to the caller
+
+    static final int ADD = 12, SUB = 13, MUL = 14, DIV = 15, MOD = 16; // a b -> int
+    static final int GT = 17, LT = 18, GE = 19, LE = 20; // a b -> bool
+    static final int AND = 21, OR = 22, XOR = 23, EQ = 24, NE = 25; // a b -> value
+    static final int NOT = 26; // a -> bool
+
+    static final int LIST = 27; // count checked: elements... -> list, checked is 0 when they are known to be of one type
+    static final int CHECK_LIST = 28; // list -> list, fails when it is not a list
+    static final int CONS = 29; // list element -> list
+    static final int HD = 30, TL = 31, IS_EMPTY = 32, LENGTH = 33, REV = 34; // list -> value
+    static final int APPEND = 35; // list other -> list
+    // the higher order operations evaluate their function only when the list is not empty
+    static final int IF_EMPTY = 36; // operation target: on [] pops list [accumulator], pushes the result, jumps
+    static final int MAP = 37, FILTER = 38, EXISTS = 39, FOR_ALL = 40; // list function -> value
+    static final int FOLD = 41; // list accumulator function -> value
+
+    // combined instructions for the most frequent sequences
+    static final int LOAD_LOCAL = 42; // slot: -> value of a variable of the innermost frame
+    static final int ADD_INT = 43, SUB_INT = 44; // value: a -> int, for an integer literal as right operand
+    static final int JUMP_UNLESS_GT = 45, JUMP_UNLESS_LT = 46, JUMP_UNLESS_GE = 47, JUMP_UNLESS_LE = 48; // target: a b ->
+
+    static final int SEQ = 49; // op count: operands... -> value of Seq.<constants[op]>
+
+    private Opcode() {
+    }
+}
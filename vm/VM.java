@@ -0,0 +1,371 @@
+package vm;
+
+import static vm.Opcode.*;
+
+import constructs.Expression;
+import constructs.Frame;
+import constructs.Identifier;
+import constructs.Operator;
+import constructs.Symbol;
+import exceptions.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import runtime.Operations;
+import runtime.Sequences;
+import values.*;
+
+// Runs compiled blocks in a single dispatch loop. Values live on an operand stack and calls on a call stack
+// of its own, so neither nesting of expressions nor recursion uses the Java stack; only the functions applied
+// by the higher order list and Seq operations run in a nested loop.
+public class VM {
+    private static final Symbol XOR_SYMBOL = new Symbol(Operator.XOR), EQ_SYMBOL = new Symbol(Operator.EQ),
+            NE_SYMBOL = new Symbol(Operator.NE);
+
+    // Object[] rather than Expression[], so storing a value needs no array store check
+    private Object[] stack = new Object[256];
+    // what a call has to restore when it returns
+    private int[] returnPcs = new int[64];
+    private Function[] returnFunctions = new Function[64];
+    private Frame[] returnFrames = new Frame[64];
+
+    public Expression execute(Function block, Frame env)
+            throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+            WrongSyntaxException {
+        return run(block, env, 0, 0);
+    }
+
+    // runs a function until it returns to the call at the bottom of the call stack, 'fp' on entry
+    private Expression run(Function function, Frame env, int sp, int fp)
+            throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+            WrongSyntaxException {
+        final int base = fp;
+        int[] code = function.code;
+        Expression[] constants = function.constants;
+        int pc = function.entry;
+        reserve(sp, function.maxStack);
+        Object[] stack = this.stack;
+
+        while (true) {
+            switch (code[pc++]) {
+                case CONST -> stack[sp++] = constants[code[pc++]];
+                case LOAD -> {
+                    Frame frame = env;
+                    for (int depth = code[pc++]; depth > 0; depth--)
+                        frame = frame.parent;
+                    stack[sp++] = frame.slots[code[pc++]];
+                }
+                case DEFINE -> {
+                    Frame global = env;
+                    while (global.parent != null)
+                        global = global.parent;
+                    global.set(code[pc++], (Expression) stack[sp - 1]);
+                }
+                case ENTER -> env = new Frame(env, new Expression[] { (Expression) stack[--sp] });
+                case LEAVE -> env = env.parent;
+                case JUMP -> pc = code[pc];
+                case JUMP_IF_FALSE -> {
+                    if (bool(stack[--sp]))
+                        pc++;
+                    else
+                        pc = code[pc];
+                }
+                case CLOSURE -> {
+                    Function body = (Function) constants[code[pc++]];
+                    stack[sp++] = new Closure(body.params, body, env);
+                }
+                case REC_CLOSURE -> {
+                    Function body = (Function) constants[code[pc++]];
+                    Identifier name = (Identifier) constants[code[pc++]];
+                    stack[sp++] = new RecursiveClosure(name, body.params, body, env);
+                }
+                case CALL, TAIL_CALL -> {
+                    boolean tail = code[pc - 1] == TAIL_CALL;
+                    int count = code[pc++];
+                    sp -= count + 1;
+                    Expression callee = (Expression) stack[sp];
+                    Frame activation = activation(callee, count);
+                    int offset = activation.slots.length - count;
+                    System.arraycopy(stack, sp + 1, activation.slots, offset, count);
+                    if (!tail) {
+                        if (fp == returnPcs.length)
+                            growCalls();
+                        returnPcs[fp] = pc;
+                        returnFunctions[fp] = function;
+                        returnFrames[fp] = env;
+                        fp++;
+                    }
+                    function = body(callee);
+                    code = function.code;
+                    constants = function.constants;
+                    pc = function.entry;
+                    env = activation;
+                    reserve(sp, function.maxStack);
+                    stack = this.stack;
+                }
+                case RETURN -> {
+                    if (fp == base)
+                        return (Expression) stack[--sp];
+                    fp--;
+                    function = returnFunctions[fp];
+                    env = returnFrames[fp];
+                    pc = returnPcs[fp];
+                    returnFunctions[fp] = null;
+                    returnFrames[fp] = null;
+                    code = function.code;
+                    constants = function.constants;
+                }
+                case ADD -> {
+                    Object e2 = stack[--sp];
+                    int i1 = integer(stack[sp - 1]), i2 = integer(e2);
+                    stack[sp - 1] = Int.of(i1 + i2);
+                }
+                case SUB -> {
+                    Object e2 = stack[--sp];
+                    int i1 = integer(stack[sp - 1]), i2 = integer(e2);
+                    stack[sp - 1] = Int.of(i1 - i2);
+                }
+                case MUL -> {
+                    Object e2 = stack[--sp];
+                    int i1 = integer(stack[sp - 1]), i2 = integer(e2);
+                    stack[sp - 1] = Int.of(i1 * i2);
+                }
+                case DIV -> {
+                    Object e2 = stack[--sp];
+                    int i1 = integer(stack[sp - 1]), i2 = integer(e2);
+                    if (i2 == 0)
+                        throw new ZeroDividerException("cannot divide by zero");
+                    stack[sp - 1] = Int.of(i1 / i2);
+                }
+                case MOD -> {
+                    Object e2 = stack[--sp];
+                    int i1 = integer(stack[sp - 1]), i2 = integer(e2);
+                    stack[sp - 1] = Int.of(i1 % i2);
+                }
+                case GT -> {
+                    Object e2 = stack[--sp];
+                    stack[sp - 1] = Bool.of(integer(stack[sp - 1]) > integer(e2));
+                }
+                case LT -> {
+                    Object e2 = stack[--sp];
+                    stack[sp - 1] = Bool.of(integer(stack[sp - 1]) < integer(e2));
+                }
+                case GE -> {
+                    Object e2 = stack[--sp];
+                    stack[sp - 1] = Bool.of(integer(stack[sp - 1]) >= integer(e2));
+                }
+                case LE -> {
+                    Object e2 = stack[--sp];
+                    stack[sp - 1] = Bool.of(integer(stack[sp - 1]) <= integer(e2));
+                }
+                case AND -> {
+                    Object e2 = stack[--sp];
+                    boolean b1 = bool(stack[sp - 1]), b2 = bool(e2);
+                    stack[sp - 1] = Bool.of(b1 && b2);
+                }
+                case OR -> {
+                    Object e2 = stack[--sp];
+                    boolean b1 = bool(stack[sp - 1]), b2 = bool(e2);
+                    stack[sp - 1] = Bool.of(b1 || b2);
+                }
+                case XOR -> {
+                    Expression e2 = (Expression) stack[--sp];
+                    stack[sp - 1] = Operations.binary(XOR_SYMBOL, (Expression) stack[sp - 1], e2);
+                }
+                case EQ -> {
+                    Expression e2 = (Expression) stack[--sp];
+                    stack[sp - 1] = Operations.binary(EQ_SYMBOL, (Expression) stack[sp - 1], e2);
+                }
+                case NE -> {
+                    Expression e2 = (Expression) stack[--sp];
+                    stack[sp - 1] = Operations.binary(NE_SYMBOL, (Expression) stack[sp - 1], e2);
+                }
+                case NOT -> stack[sp - 1] = Bool.of(!bool(stack[sp - 1]));
+                case LIST -> {
+                    int count = code[pc++];
+                    boolean checked = code[pc++] != 0;
+                    sp -= count;
+                    Expression type = count == 0 ? null : Operations.elementType((Expression) stack[sp]);
+                    for (int i = 0; checked && i < count; i++)
+                        Operations.typecheck((Expression) stack[sp + i], type);
+                    Lis l = Lis.empty(type);
+                    for (int i = count - 1; i >= 0; i--)
+                        l = l.cons((Expression) stack[sp + i], type);
+                    stack[sp++] = l;
+                }
+                case CHECK_LIST -> list(stack[sp - 1]);
+                case CONS -> {
+                    Expression element = (Expression) stack[--sp];
+                    stack[sp - 1] = Operations.cons(element, (Lis) stack[sp - 1]);
+                }
+                case HD -> stack[sp - 1] = Operations.hd(list(stack[sp - 1]));
+                case TL -> stack[sp - 1] = Operations.tl(list(stack[sp - 1]));
+                case IS_EMPTY -> stack[sp - 1] = Operations.isEmpty(list(stack[sp - 1]));
+                case LENGTH -> stack[sp - 1] = Operations.length(list(stack[sp - 1]));
+                case REV -> stack[sp - 1] = Operations.rev(list(stack[sp - 1]));
+                case APPEND -> {
+                    Expression other = (Expression) stack[--sp];
+                    stack[sp - 1] = Operations.append((Lis) stack[sp - 1], other);
+                }
+                case IF_EMPTY -> {
+                    int operation = code[pc++];
+                    int operands = operation == FOLD ? 2 : 1;
+                    if (!list(stack[sp - operands]).isEmpty())
+                        pc++;
+                    else {
+                        sp -= operands;
+                        stack[sp++] = switch (operation) {
+                            case MAP, FILTER -> Lis.empty();
+                            case EXISTS -> Bool.of(false);
+                            case FOR_ALL -> Bool.of(true);
+                            default -> null; // like the tree interpreter, folding an empty list gives no value
+                        };
+                        pc = code[pc];
+                    }
+                }
+                // a nested run may grow the operand stack, which is read again afterwards
+                case MAP -> {
+                    Expression fun = (Expression) stack[--sp];
+                    List<Expression> newList = new ArrayList<>();
+                    for (Expression elem : (Lis) stack[sp - 1])
+                        newList.add(apply(fun, sp, fp, elem));
+                    stack = this.stack;
+                    stack[sp - 1] = Lis.of(newList, null);
+                }
+                case FILTER -> {
+                    Expression fun = (Expression) stack[--sp];
+                    List<Expression> newList = new ArrayList<>();
+                    for (Expression elem : (Lis) stack[sp - 1])
+                        if (bool(apply(fun, sp, fp, elem)))
+                            newList.add(elem);
+                    stack = this.stack;
+                    stack[sp - 1] = Lis.of(newList, null);
+                }
+                case EXISTS -> {
+                    Expression fun = (Expression) stack[--sp];
+                    boolean ret = false;
+                    for (Expression elem : (Lis) stack[sp - 1])
+                        if (bool(apply(fun, sp, fp, elem))) {
+                            ret = true;
+                            break;
+                        }
+                    stack = this.stack;
+                    stack[sp - 1] = Bool.of(ret);
+                }
+                case FOR_ALL -> {
+                    Expression fun = (Expression) stack[--sp];
+                    boolean ret = true;
+                    for (Expression elem : (Lis) stack[sp - 1])
+                        if (!bool(apply(fun, sp, fp, elem))) {
+                            ret = false;
+                            break;
+                        }
+                    stack = this.stack;
+                    stack[sp - 1] = Bool.of(ret);
+                }
+                case FOLD -> {
+                    Expression fun = (Expression) stack[--sp], firstAcc = (Expression) stack[--sp], newAcc = null;
+                    for (Expression elem : (Lis) stack[sp - 1]) {
+                        newAcc = apply(fun, sp, fp, elem, newAcc == null ? firstAcc : newAcc);
+                        Operations.typecheck(newAcc, firstAcc);
+                    }
+                    stack = this.stack;
+                    stack[sp - 1] = newAcc;
+                }
+                case SEQ -> {
+                    Operator op = ((Symbol) constants[code[pc++]]).code;
+                    int count = code[pc++];
+                    sp -= count;
+                    List<Expression> args = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++)
+                        args.add((Expression) stack[sp + i]);
+                    int top = sp, frames = fp;
+                    Expression value = Sequences.evaluate(op, args,
+                            (callee, values) -> apply(callee, top, frames, values));
+                    stack = this.stack;
+                    stack[sp++] = value;
+                }
+                case LOAD_LOCAL -> stack[sp++] = env.slots[code[pc++]];
+                case ADD_INT -> stack[sp - 1] = Int.of(integer(stack[sp - 1]) + code[pc++]);
+                case SUB_INT -> stack[sp - 1] = Int.of(integer(stack[sp - 1]) - code[pc++]);
+                case JUMP_UNLESS_GT -> {
+                    Object e2 = stack[--sp];
+                    pc = integer(stack[--sp]) > integer(e2) ? pc + 1 : code[pc];
+                }
+                case JUMP_UNLESS_LT -> {
+                    Object e2 = stack[--sp];
+                    pc = integer(stack[--sp]) < integer(e2) ? pc + 1 : code[pc];
+                }
+                case JUMP_UNLESS_GE -> {
+                    Object e2 = stack[--sp];
+                    pc = integer(stack[--sp]) >= integer(e2) ? pc + 1 : code[pc];
+                }
+                case JUMP_UNLESS_LE -> {
+                    Object e2 = stack[--sp];
+                    pc = integer(stack[--sp]) <= integer(e2) ? pc + 1 : code[pc];
+                }
+                default -> throw new UnknownCommandException("unknown instruction " + code[pc - 1]);
+            }
+        }
+    }
+
+    // applies a function for a higher order list operation, using the stacks above the caller's
+    private Expression apply(Expression callee, int sp, int fp, Expression... values)
+            throws ZeroDividerException, UnknownCommandException, TypeMismatchException, NoBindingException,
+            WrongSyntaxException {
+        Frame activation = activation(callee, values.length);
+        System.arraycopy(values, 0, activation.slots, activation.slots.length - values.length, values.length);
+        return run(body(callee), activation, sp, fp);
+    }
+
+    // checks the callee and allocates its frame, which holds the closure itself in slot 0 when it is recursive
+    private static Frame activation(Expression callee, int arity) throws TypeMismatchException, WrongSyntaxException {
+        switch (callee) {
+            case Closure clo -> {
+                if (arity != clo.params.size())
+                    throw new WrongSyntaxException(
+                            "functional application parameters do not match the function signature");
+                return new Frame(clo.fenv, new Expression[arity]);
+            }
+            case RecursiveClosure rec -> {
+                if (arity != rec.params.size())
+                    throw new WrongSyntaxException(
+                            "functional application parameters do not match the function signature");
+                Expression[] slots = new Expression[arity + 1];
+                slots[0] = rec;
+                return new Frame(rec.fenv, slots);
+            }
+            default -> throw new TypeMismatchException("not a functional value passed");
+        }
+    }
+
+    private static Function body(Expression callee) {
+        if (callee instanceof Closure clo)
+            return (Function) clo.body;
+        return (Function) ((RecursiveClosure) callee).body;
+    }
+
+    private static int integer(Object e) throws TypeMismatchException {
+        return Operations.integer((Expression) e);
+    }
+
+    private static boolean bool(Object e) throws TypeMismatchException {
+        return Operations.bool((Expression) e);
+    }
+
+    private static Lis list(Object e) throws TypeMismatchException {
+        return Operations.list((Expression) e);
+    }
+
+    private void reserve(int sp, int needed) {
+        if (sp + needed > stack.length)
+            stack = Arrays.copyOf(stack, 2 * (sp + needed));
+    }
+
+    private void growCalls() {
+        int size = 2 * returnPcs.length;
+        returnPcs = Arrays.copyOf(returnPcs, size);
+        returnFunctions = Arrays.copyOf(returnFunctions, size);
+        returnFrames = Arrays.copyOf(returnFrames, size);
+    }
+}
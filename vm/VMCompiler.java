@@ -0,0 +1,249 @@
+package vm;
+
+import static vm.Opcode.*;
+
+import constructs.*;
+import exceptions.NoBindingException;
+import exceptions.UnknownCommandException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import values.*;
+
+// Compiles a resolved block into one instruction stream: the block itself first, then the body of every
+// function it contains. All of them share the constant pool of the block.
+public class VMCompiler {
+    private record Pending(Function function, Expression body) {
+    }
+
+    private int[] code;
+    private int length;
+    private List<Expression> constants;
+    private ArrayDeque<Pending> pending;
+    // operand stack depth at the current instruction, and the deepest it gets in the current function
+    private int depth, maxDepth;
+
+    public Function compile(Expression e) throws UnknownCommandException, NoBindingException {
+        code = new int[64];
+        length = 0;
+        constants = new ArrayList<>();
+        pending = new ArrayDeque<>();
+        List<Function> functions = new ArrayList<>();
+
+        Function block = new Function();
+        block.params = List.of();
+        pending.add(new Pending(block, e));
+        while (!pending.isEmpty()) {
+            Pending next = pending.removeFirst();
+            next.function.entry = length;
+            depth = maxDepth = 0;
+            emit(next.body, true);
+            op(RETURN, -1);
+            next.function.maxStack = maxDepth;
+            functions.add(next.function);
+        }
+
+        int[] finished = Arrays.copyOf(code, length);
+        Expression[] pool = constants.toArray(new Expression[0]);
+        for (Function function : functions) {
+            function.code = finished;
+            function.constants = pool;
+        }
+        return block;
+    }
+
+    // 'tail' tells whether the value of e is the value of the function being compiled
+    private void emit(Expression e, boolean tail) throws UnknownCommandException, NoBindingException {
+        switch (e) {
+            case Int i -> op(CONST, 1, constant(i));
+            case Bool b -> op(CONST, 1, constant(b));
+            case Identifier id -> {
+                if (id.depth < 0)
+                    throw new NoBindingException("variable '" + id.value + "' is not bound in scope");
+                if (id.depth == 0)
+                    op(LOAD_LOCAL, 1, id.slot);
+                else
+                    op(LOAD, 1, id.depth, id.slot);
+            }
+            case AnonymusFunction f -> op(CLOSURE, 1, constant(function(f.formalParams, f.body)));
+            case ListLiteral l -> {
+                for (Expression element : l.elements)
+                    emit(element, false);
+                op(LIST, 1 - l.elements.size(), l.elements.size(), l.typed ? 0 : 1);
+            }
+            case BinaryOperation bop when bop.e2 instanceof Int i && (bop.op.code == Operator.ADD || bop.op.code == Operator.SUB) -> {
+                emit(bop.e1, false);
+                op(bop.op.code == Operator.ADD ? ADD_INT : SUB_INT, 0, i.value);
+            }
+            case BinaryOperation bop -> {
+                emit(bop.e1, false);
+                emit(bop.e2, false);
+                op(switch (bop.op.code) {
+                    case ADD -> ADD;
+                    case SUB -> SUB;
+                    case MUL -> MUL;
+                    case DIV -> DIV;
+                    case MOD -> MOD;
+                    case GT -> GT;
+                    case LT -> LT;
+                    case GE -> GE;
+                    case LE -> LE;
+                    case AND -> AND;
+                    case OR -> OR;
+                    case XOR -> XOR;
+                    case EQ -> EQ;
+                    case NE -> NE;
+                    default -> throw new UnknownCommandException("unknown operation '" + bop.op.value + "'");
+                }, -1);
+            }
+            case UnaryOperation uop -> {
+                if (uop.op.code != Operator.NOT)
+                    throw new UnknownCommandException("unknown operation '" + uop.op.value + "'");
+                emit(uop.arg, false);
+                op(NOT, 0);
+            }
+            case Ifthenelse ifte -> {
+                int els = guard(ifte.guard), end = -1;
+                int before = depth;
+                emit(ifte.then, tail);
+                if (tail)
+                    op(RETURN, -1);
+                else
+                    end = jump(JUMP, 0);
+                depth = before;
+                patch(els);
+                emit(ifte.els, tail);
+                if (end >= 0)
+                    patch(end);
+            }
+            case Let let -> {
+                emit(let.value, false);
+                bind(((Identifier) let.var).slot, let.body, tail);
+            }
+            case Letrec letr -> {
+                Identifier name = (Identifier) letr.name;
+                op(REC_CLOSURE, 1, constant(function(letr.params, letr.fbody)), constant(name));
+                bind(name.slot, letr.letbody, tail);
+            }
+            case FunctionalApplication app -> {
+                emit(app.iden, false);
+                for (Expression arg : app.actualParams)
+                    emit(arg, false);
+                op(tail ? TAIL_CALL : CALL, -app.actualParams.size(), app.actualParams.size());
+            }
+            case ListOperation lop -> {
+                emit(lop.list, false);
+                switch (lop.op.code) {
+                    case CONS -> binary(CONS, lop.arg2, lop.typed);
+                    case HD -> op(HD, 0);
+                    case TL -> op(TL, 0);
+                    case IS_EMPTY -> op(IS_EMPTY, 0);
+                    case LENGTH -> op(LENGTH, 0);
+                    case REV -> op(REV, 0);
+                    case APPEND -> binary(APPEND, lop.arg2, lop.typed);
+                    case MAP -> higherOrder(MAP, lop.arg2);
+                    case FILTER -> higherOrder(FILTER, lop.arg2);
+                    case EXISTS -> higherOrder(EXISTS, lop.arg2);
+                    case FOR_ALL -> higherOrder(FOR_ALL, lop.arg2);
+                    case FOLD -> {
+                        if (!lop.typed)
+                            op(CHECK_LIST, 0);
+                        emit(lop.arg2, false);
+                        higherOrder(FOLD, lop.arg1);
+                    }
+                    default -> throw new UnknownCommandException("unknown list operation '" + lop.op.value + "'");
+                }
+            }
+            case SeqOperation sop -> {
+                for (Expression arg : sop.args)
+                    emit(arg, false);
+                op(SEQ, 1 - sop.args.size(), constant(sop.op), sop.args.size());
+            }
+            default -> throw new UnknownCommandException(null);
+        }
+    }
+
+    // emits the guard of an if and the jump to its else branch, comparing integers without making a Bool
+    private int guard(Expression guard) throws UnknownCommandException, NoBindingException {
+        if (guard instanceof BinaryOperation bop) {
+            int opcode = switch (bop.op.code) {
+                case GT -> JUMP_UNLESS_GT;
+                case LT -> JUMP_UNLESS_LT;
+                case GE -> JUMP_UNLESS_GE;
+                case LE -> JUMP_UNLESS_LE;
+                default -> -1;
+            };
+            if (opcode >= 0) {
+                emit(bop.e1, false);
+                emit(bop.e2, false);
+                return jump(opcode, -2);
+            }
+        }
+        emit(guard, false);
+        return jump(JUMP_IF_FALSE, -1);
+    }
+
+    // the value on the stack is bound for the body, or stored as a global when there is no body
+    private void bind(int slot, Expression body, boolean tail) throws UnknownCommandException, NoBindingException {
+        if (body == null) {
+            if (slot >= 0)
+                op(DEFINE, 0, slot);
+            return;
+        }
+        op(ENTER, -1);
+        emit(body, tail);
+        // returning restores the caller's frames, so only a body in the middle of a function has to leave
+        if (!tail)
+            op(LEAVE, 0);
+    }
+
+    // the list is checked before the other operand is evaluated, unless type inference has found it to be one
+    private void binary(int opcode, Expression other, boolean typed)
+            throws UnknownCommandException, NoBindingException {
+        if (!typed)
+            op(CHECK_LIST, 0);
+        emit(other, false);
+        op(opcode, -1);
+    }
+
+    private void higherOrder(int opcode, Expression function) throws UnknownCommandException, NoBindingException {
+        int empty = length;
+        op(IF_EMPTY, 0, opcode, 0);
+        emit(function, false);
+        op(opcode, opcode == FOLD ? -2 : -1);
+        code[empty + 2] = length;
+    }
+
+    private Function function(List<Expression> params, Expression body) {
+        Function function = new Function();
+        function.params = params;
+        pending.add(new Pending(function, body));
+        return function;
+    }
+
+    private int constant(Expression value) {
+        constants.add(value);
+        return constants.size() - 1;
+    }
+
+    // emits a jump and returns where its target has to be patched
+    private int jump(int opcode, int effect) {
+        op(opcode, effect, 0);
+        return length - 1;
+    }
+
+    private void patch(int jump) {
+        code[jump] = length;
+    }
+
+    private void op(int opcode, int effect, int... operands) {
+        if (length + operands.length + 1 > code.length)
+            code = Arrays.copyOf(code, 2 * code.length + operands.length);
+        code[length++] = opcode;
+        for (int operand : operands)
+            code[length++] = operand;
+        depth += effect;
+        maxDepth = Math.max(maxDepth, depth);
+    }
+}